@@ -0,0 +1,36 @@
+package com.michaelpippolito.utils.benchmark;
+
+import com.michaelpippolito.utils.LocalUtiltiesApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Boots the application without its web server, backed by a throwaway local directory. Properties are passed as
+    command line arguments so that they take precedence over application.yml
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) throws IOException {
+        Path localDir = Files.createTempDirectory("sftp-benchmark");
+        List<String> args = new ArrayList<>();
+        args.add("--sftp.autoStartup=false");
+        args.add("--sftp.localDir=" + localDir);
+        args.add("--logging.level.root=WARN");
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(LocalUtiltiesApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,62 @@
+package com.michaelpippolito.utils.benchmark;
+
+import com.michaelpippolito.utils.server.ServerManager;
+import com.michaelpippolito.utils.server.ServerType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/*
+    Port registry operations with many threads contending on a shared range of ports
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ServerManagerBenchmark {
+
+    @Param({"16", "1024"})
+    public int ports;
+
+    private ServerManager serverManager;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        serverManager = new ServerManager();
+    }
+
+    @Benchmark
+    public boolean isPortInUse() {
+        return serverManager.isPortInUse(randomPort());
+    }
+
+    @Benchmark
+    public boolean occupyAndAbandon() {
+        int port = randomPort();
+        if (serverManager.occupyPort(port, ServerType.SFTP)) {
+            return serverManager.abandonPort(port, ServerType.SFTP);
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean lockedOccupyAndAbandon() {
+        int port = randomPort();
+        Lock portLock = serverManager.getPortLock(port);
+        portLock.lock();
+        try {
+            return serverManager.occupyPort(port, ServerType.SFTP) && serverManager.abandonPort(port, ServerType.SFTP);
+        } finally {
+            portLock.unlock();
+        }
+    }
+
+    private int randomPort() {
+        return 20000 + ThreadLocalRandom.current().nextInt(ports);
+    }
+}
@@ -0,0 +1,113 @@
+package com.michaelpippolito.utils.benchmark;
+
+import com.michaelpippolito.utils.server.ServerCommandResponse;
+import com.michaelpippolito.utils.server.ServerCommandStatus;
+import com.michaelpippolito.utils.sftp.SftpHelper;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.keyverifier.AcceptAllServerKeyVerifier;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.client.subsystem.sftp.SftpClient;
+import org.apache.sshd.client.subsystem.sftp.SftpClientFactory;
+import org.apache.sshd.client.subsystem.sftp.extensions.CopyDataExtension;
+import org.apache.sshd.client.subsystem.sftp.extensions.CopyFileExtension;
+import org.apache.sshd.common.util.io.IoUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.SocketUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Duplicating a file on an embedded SFTP Server, once by downloading and uploading it again through the client and
+    once with the copy-file and copy-data extensions, which copy inside the server. The bytes counter is reported by JMH
+    as a rate, i.e. copy throughput in bytes per second
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SftpCopyBenchmark {
+
+    @Param({"1048576", "104857600", "1073741824"})
+    public long fileSize;
+
+    private ConfigurableApplicationContext context;
+    private SshClient client;
+    private ClientSession session;
+    private SftpClient sftpClient;
+    private CopyFileExtension copyFile;
+    private CopyDataExtension copyData;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        context = BenchmarkApplication.start();
+        int port = SocketUtils.findAvailableTcpPort();
+        ServerCommandResponse response = context.getBean(SftpHelper.class).startSftpServer(port);
+        if (!response.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+            context.close();
+            throw new IllegalStateException(response.getMessage());
+        }
+
+        client = SshClient.setUpDefaultClient();
+        client.setServerKeyVerifier(AcceptAllServerKeyVerifier.INSTANCE);
+        client.start();
+        session = client.connect("benchmark", "localhost", port).verify(10000).getSession();
+        session.addPasswordIdentity("benchmark");
+        session.auth().verify(10000);
+        sftpClient = SftpClientFactory.instance().createSftpClient(session);
+        copyFile = sftpClient.getExtension(CopyFileExtension.class);
+        copyData = sftpClient.getExtension(CopyDataExtension.class);
+
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(0).nextBytes(chunk);
+        try (OutputStream out = sftpClient.write("source.bin")) {
+            for (long written = 0; written < fileSize; written += chunk.length) {
+                out.write(chunk, 0, (int) Math.min(chunk.length, fileSize - written));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sftpClient.close();
+        session.close();
+        client.stop();
+        context.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytes;
+    }
+
+    @Benchmark
+    public void downloadAndUpload(Bytes bytes) throws IOException {
+        try (InputStream in = sftpClient.read("source.bin");
+             OutputStream out = sftpClient.write("copy.bin")) {
+            IoUtils.copy(in, out);
+        }
+        bytes.bytes += fileSize;
+    }
+
+    @Benchmark
+    public void copyFile(Bytes bytes) throws IOException {
+        copyFile.copyFile("source.bin", "copy.bin", true);
+        bytes.bytes += fileSize;
+    }
+
+    @Benchmark
+    public void copyData(Bytes bytes) throws IOException {
+        try (SftpClient.CloseableHandle source = sftpClient.open("source.bin", SftpClient.OpenMode.Read);
+             SftpClient.CloseableHandle target = sftpClient.open("copy.bin", SftpClient.OpenMode.Write, SftpClient.OpenMode.Create, SftpClient.OpenMode.Truncate)) {
+            copyData.copyData(source, 0, 0, target, 0);
+        }
+        bytes.bytes += fileSize;
+    }
+}
@@ -0,0 +1,57 @@
+package com.michaelpippolito.utils.benchmark;
+
+import com.michaelpippolito.utils.sftp.SftpHelper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.SocketUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Start and stop latency of a single SFTP Server. "Cold" builds every server on the request thread, "warm" takes it
+    from a pre-configured standby pool
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SftpLifecycleBenchmark {
+
+    @Param({"cold", "warm"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private SftpHelper sftpHelper;
+    private int port;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        context = BenchmarkApplication.start("sftp.standbyServers=" + (mode.equals("warm") ? 4 : 0));
+        sftpHelper = context.getBean(SftpHelper.class);
+        port = SocketUtils.findAvailableTcpPort();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopServer() {
+        sftpHelper.stopSftpServer(port);
+    }
+
+    @Benchmark
+    public Object start() {
+        return sftpHelper.startSftpServer(port);
+    }
+
+    @Benchmark
+    public Object startAndStop() {
+        sftpHelper.startSftpServer(port);
+        return sftpHelper.stopSftpServer(port);
+    }
+}
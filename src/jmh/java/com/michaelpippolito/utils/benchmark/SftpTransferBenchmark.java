@@ -0,0 +1,98 @@
+package com.michaelpippolito.utils.benchmark;
+
+import com.jcraft.jsch.*;
+import com.michaelpippolito.utils.server.ServerCommandResponse;
+import com.michaelpippolito.utils.server.ServerCommandStatus;
+import com.michaelpippolito.utils.sftp.SftpHelper;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.SocketUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Upload and download through an embedded SFTP Server with JSch as the client. The bytes counter is reported by JMH as
+    a rate, i.e. throughput in bytes per second. Compare mapped and unmapped downloads with -prof gc to see the
+    allocation rate of each read path
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SftpTransferBenchmark {
+
+    @Param({"1024", "1048576", "104857600", "1073741824"})
+    public long fileSize;
+
+    /*
+        -1 turns mapped reads off, 1 maps every download
+     */
+    @Param({"1", "-1"})
+    public long mappedReadThresholdBytes;
+
+    private ConfigurableApplicationContext context;
+    private Session session;
+    private ChannelSftp channelSftp;
+    private Path localFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, JSchException, SftpException {
+        context = BenchmarkApplication.start("sftp.mappedReadThresholdBytes=" + mappedReadThresholdBytes);
+        int port = SocketUtils.findAvailableTcpPort();
+        ServerCommandResponse response = context.getBean(SftpHelper.class).startSftpServer(port);
+        if (!response.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+            context.close();
+            throw new IllegalStateException(response.getMessage());
+        }
+
+        localFile = Files.createTempFile("sftp-benchmark", ".bin");
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(0).nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(localFile)) {
+            for (long written = 0; written < fileSize; written += chunk.length) {
+                out.write(chunk, 0, (int) Math.min(chunk.length, fileSize - written));
+            }
+        }
+
+        session = new JSch().getSession("benchmark", "localhost", port);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        channelSftp.put(localFile.toString(), "download.bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        channelSftp.exit();
+        session.disconnect();
+        context.close();
+        Files.deleteIfExists(localFile);
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytes;
+    }
+
+    @Benchmark
+    public void upload(Bytes bytes) throws SftpException {
+        channelSftp.put(localFile.toString(), "upload.bin");
+        bytes.bytes += fileSize;
+    }
+
+    @Benchmark
+    public void download(Bytes bytes) throws SftpException {
+        channelSftp.get("download.bin", NullOutputStream.NULL_OUTPUT_STREAM);
+        bytes.bytes += fileSize;
+    }
+}
@@ -0,0 +1,46 @@
+package com.michaelpippolito.utils.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class FileEvent {
+    /*
+        Increases by one for every event published, across all ports
+     */
+    @Getter @Setter
+    private long sequence;
+
+    @Getter @Setter
+    private FileEventType type;
+
+    @Getter @Setter
+    private int port;
+
+    /*
+        Relative to the root of the SFTP Server, for a rename this is where the file came from
+     */
+    @Getter @Setter
+    private String path;
+
+    /*
+        Where a renamed file ended up, unset for other events
+     */
+    @Getter @Setter
+    private String targetPath;
+
+    @Getter @Setter
+    private boolean directory;
+
+    /*
+        Size of an uploaded file once it was closed, unset for other events or when it could not be read
+     */
+    @Getter @Setter
+    private Long size;
+
+    @Getter @Setter
+    private long timestamp;
+}
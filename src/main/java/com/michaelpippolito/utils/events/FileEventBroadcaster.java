@@ -0,0 +1,96 @@
+package com.michaelpippolito.utils.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Hands every published event to the subscribers interested in its port. Sends run on a cached pool, so a thread is
+    only held while a subscriber has events to deliver
+ */
+@Component
+@Slf4j
+public class FileEventBroadcaster {
+
+    @Autowired
+    private FileEventConfig config;
+
+    private Set<FileEventSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private AtomicLong sequence = new AtomicLong();
+
+    private ExecutorService sendExecutor;
+
+    @PostConstruct
+    public void init() {
+        sendExecutor = Executors.newCachedThreadPool(new CustomizableThreadFactory("file-events-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (FileEventSubscriber subscriber : subscribers) {
+            subscriber.close();
+            subscriber.getEmitter().complete();
+        }
+        sendExecutor.shutdownNow();
+    }
+
+    /*
+        A null port subscribes to the events of every SFTP Server
+     */
+    public SseEmitter subscribe(Integer port) {
+        SseEmitter emitter = new SseEmitter(config.getSubscriptionTimeoutMillis());
+        FileEventSubscriber subscriber = new FileEventSubscriber(emitter, port, config.getSubscriberBufferSize(), sendExecutor);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+
+        /*
+            Sent straight away so the response is committed and the client knows it is subscribed before the first
+            event arrives
+         */
+        try {
+            emitter.send(SseEmitter.event().comment("subscribed to " + (port == null ? "all ports" : "port " + port)));
+        } catch (IOException e) {
+            unsubscribe(subscriber);
+            emitter.completeWithError(e);
+        }
+        log.info("File event subscriber added for " + (port == null ? "all ports" : "port " + port) + ", " + subscribers.size() + " subscribers");
+        return emitter;
+    }
+
+    public void publish(FileEventType type, int port, String path, String targetPath, boolean directory, Long size) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        FileEvent event = new FileEvent(sequence.incrementAndGet(), type, port, path, targetPath, directory, size, System.currentTimeMillis());
+        for (FileEventSubscriber subscriber : subscribers) {
+            if (subscriber.accepts(event)) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void unsubscribe(FileEventSubscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.close();
+            log.info("File event subscriber removed, " + subscribers.size() + " subscribers");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.michaelpippolito.utils.events;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "events")
+public class FileEventConfig {
+    /*
+        Events held for a subscriber that has not caught up yet. Once it is full further events are dropped and the
+        subscriber is sent an OVERFLOW event with the number it missed
+     */
+    @Getter @Setter
+    private int subscriberBufferSize = 1024;
+
+    @Getter @Setter
+    private long subscriptionTimeoutMillis = 3600000;
+}
@@ -0,0 +1,25 @@
+package com.michaelpippolito.utils.events;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+public class FileEventController {
+
+    @Autowired
+    private FileEventBroadcaster fileEventBroadcaster;
+
+    @GetMapping(value = "/events/sftp", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe() {
+        return fileEventBroadcaster.subscribe(null);
+    }
+
+    @GetMapping(value = "/events/sftp/{port}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable int port) {
+        return fileEventBroadcaster.subscribe(port);
+    }
+}
@@ -0,0 +1,103 @@
+package com.michaelpippolito.utils.events;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/*
+    One open event stream. Publishing only ever appends to the buffer, sending happens on a separate thread with at
+    most one send in flight per subscriber, so a consumer that stops reading fills its own buffer instead of holding
+    up the SFTP Server. Dropped events are replaced by a single OVERFLOW marker at the point they were lost
+ */
+public class FileEventSubscriber {
+    private final SseEmitter emitter;
+    private final Integer port;
+    private final int bufferSize;
+    private final Executor executor;
+    private final Queue<Entry> entries = new ArrayDeque<Entry>();
+
+    private Entry overflow;
+    private boolean draining;
+    private boolean closed;
+
+    public FileEventSubscriber(SseEmitter emitter, Integer port, int bufferSize, Executor executor) {
+        this.emitter = emitter;
+        this.port = port;
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    public boolean accepts(FileEvent event) {
+        return port == null || port == event.getPort();
+    }
+
+    public void offer(FileEvent event) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (entries.size() < bufferSize) {
+                entries.add(new Entry(event, 0));
+                overflow = null;
+            } else if (overflow != null) {
+                overflow.dropped++;
+            } else {
+                overflow = new Entry(null, 1);
+                entries.add(overflow);
+            }
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    public synchronized void close() {
+        closed = true;
+        entries.clear();
+    }
+
+    private void drain() {
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = entries.poll();
+                if (entry == overflow) {
+                    overflow = null;
+                }
+                if (entry == null || closed) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                if (entry.event == null) {
+                    emitter.send(SseEmitter.event().name("OVERFLOW").data(entry.dropped));
+                } else {
+                    emitter.send(SseEmitter.event().id(String.valueOf(entry.event.getSequence())).name(entry.event.getType().name()).data(entry.event));
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final FileEvent event;
+        private long dropped;
+
+        private Entry(FileEvent event, long dropped) {
+            this.event = event;
+            this.dropped = dropped;
+        }
+    }
+}
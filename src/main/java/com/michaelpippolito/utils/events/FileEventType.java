@@ -0,0 +1,12 @@
+package com.michaelpippolito.utils.events;
+
+public enum FileEventType {
+    UPLOADED,
+    RENAMED,
+    REMOVED,
+
+    /*
+        A file written by the server for a copy-file or copy-data request, from the path to the target path
+     */
+    COPIED
+}
@@ -0,0 +1,19 @@
+package com.michaelpippolito.utils.health;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "health")
+public class HealthConfig {
+    @Getter @Setter
+    private long probeIntervalMillis = 5000;
+
+    @Getter @Setter
+    private long probeTtlMillis = 15000;
+
+    @Getter @Setter
+    private int probeTimeoutMillis = 1000;
+}
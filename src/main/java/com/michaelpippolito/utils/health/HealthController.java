@@ -1,15 +1,44 @@
 package com.michaelpippolito.utils.health;
 
 import com.michaelpippolito.utils.server.ServerStatus;
+import com.michaelpippolito.utils.sftp.SftpHelper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
 @RestController
 public class HealthController {
 
+    @Autowired
+    private SftpHelper sftpHelper;
+
+    @Autowired
+    private ServerHealthMonitor serverHealthMonitor;
+
     @GetMapping("/health")
     public ResponseEntity<ServerStatus> getHealth() {
         return ResponseEntity.ok(ServerStatus.UP);
     }
+
+    @GetMapping("/health/servers")
+    public ResponseEntity<List<ServerHealth>> getServerHealth() {
+        return ResponseEntity.ok(serverHealthMonitor.getServerHealth());
+    }
+
+    @GetMapping("/health/threads")
+    public ResponseEntity<ThreadCountResponse> getThreadCount() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return ResponseEntity.ok(new ThreadCountResponse(
+                threads.getThreadCount(),
+                threads.getPeakThreadCount(),
+                threads.getDaemonThreadCount(),
+                sftpHelper.getIoThreadCount(),
+                sftpHelper.getSftpServerCount()
+        ));
+    }
 }
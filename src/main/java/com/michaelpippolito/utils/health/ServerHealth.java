@@ -0,0 +1,31 @@
+package com.michaelpippolito.utils.health;
+
+import com.michaelpippolito.utils.server.ServerStatus;
+import com.michaelpippolito.utils.server.ServerType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+public class ServerHealth {
+    @Getter @Setter
+    private int port;
+
+    @Getter @Setter
+    private ServerType serverType;
+
+    @Getter @Setter
+    private boolean bound;
+
+    @Getter @Setter
+    private int activeSessions;
+
+    @Getter @Setter
+    private ServerStatus probeStatus;
+
+    @Getter @Setter
+    private long probeMillis;
+
+    @Getter @Setter
+    private long probedAt;
+}
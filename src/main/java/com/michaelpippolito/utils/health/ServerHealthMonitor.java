@@ -0,0 +1,113 @@
+package com.michaelpippolito.utils.health;
+
+import com.michaelpippolito.utils.server.ServerManager;
+import com.michaelpippolito.utils.server.ServerStatus;
+import com.michaelpippolito.utils.server.ServerType;
+import com.michaelpippolito.utils.sftp.SftpHelper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Probes every registered port on a background schedule and serves the last results, so polling the health endpoint
+    never blocks on a socket and never opens more than one probe connection per port per interval
+ */
+@Component
+@Slf4j
+public class ServerHealthMonitor {
+
+    @Autowired
+    private HealthConfig config;
+
+    @Autowired
+    private ServerManager serverManager;
+
+    @Autowired
+    private SftpHelper sftpHelper;
+
+    private ScheduledExecutorService probeExecutor;
+
+    private AtomicBoolean probing = new AtomicBoolean();
+
+    private volatile List<ServerHealth> serverHealth = Collections.emptyList();
+
+    private volatile long probedAt;
+
+    @PostConstruct
+    public void init() {
+        probeExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("health-probe-"));
+        probeExecutor.scheduleWithFixedDelay(this::probe, 0, config.getProbeIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        probeExecutor.shutdownNow();
+    }
+
+    public List<ServerHealth> getServerHealth() {
+        if (System.currentTimeMillis() - probedAt > config.getProbeTtlMillis() && !probing.get()) {
+            probeExecutor.execute(this::probe);
+        }
+        return serverHealth;
+    }
+
+    private void probe() {
+        if (!probing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<ServerHealth> results = new ArrayList<ServerHealth>();
+            for (Map.Entry<Integer, ServerType> server : new TreeMap<Integer, ServerType>(serverManager.getServers()).entrySet()) {
+                results.add(probe(server.getKey(), server.getValue()));
+            }
+            serverHealth = Collections.unmodifiableList(results);
+            probedAt = System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            log.error("Failed probing servers -- " + ExceptionUtils.getStackTrace(e));
+        } finally {
+            probing.set(false);
+        }
+    }
+
+    /*
+        Every port is probed by connecting to it, so a server that is bound but no longer accepts connections is still
+        reported DOWN. A connection to an SFTP Server never authenticates, so it does not take a session cap slot, and
+        sessions are counted before connecting so the probe's own connection is not among them
+     */
+    private ServerHealth probe(int port, ServerType serverType) {
+        boolean sftp = serverType.equals(ServerType.SFTP);
+        int activeSessions = sftp ? sftpHelper.getActiveSessionCount(port) : 0;
+        long startTime = System.nanoTime();
+        ServerStatus probeStatus;
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), config.getProbeTimeoutMillis());
+            probeStatus = ServerStatus.UP;
+        } catch (IOException e) {
+            probeStatus = ServerStatus.DOWN;
+        }
+
+        return new ServerHealth(
+                port,
+                serverType,
+                !sftp || sftpHelper.isBound(port),
+                activeSessions,
+                probeStatus,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+                System.currentTimeMillis()
+        );
+    }
+}
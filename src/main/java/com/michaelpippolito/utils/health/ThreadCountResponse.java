@@ -0,0 +1,23 @@
+package com.michaelpippolito.utils.health;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+public class ThreadCountResponse {
+    @Getter @Setter
+    private int liveThreads;
+
+    @Getter @Setter
+    private int peakThreads;
+
+    @Getter @Setter
+    private int daemonThreads;
+
+    @Getter @Setter
+    private int sftpIoThreads;
+
+    @Getter @Setter
+    private int sftpServers;
+}
@@ -0,0 +1,38 @@
+package com.michaelpippolito.utils.journal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "journal")
+public class JournalConfig {
+    /*
+        Off unless asked for, since the journal writes files outside the project into the directory below
+     */
+    @Getter @Setter
+    private boolean enabled = false;
+
+    @Getter @Setter
+    private String directory = System.getProperty("user.home") + "/.local-development-utilities/journal";
+
+    /*
+        Records held between flushes, rounded up to a power of two. Once it is full further records are dropped rather
+        than slowing down the transfer that produced them
+     */
+    @Getter @Setter
+    private int bufferSize = 65536;
+
+    @Getter @Setter
+    private long flushIntervalMillis = 200;
+
+    /*
+        Size at which the journal file is rotated, the previous file is kept until the next rotation
+     */
+    @Getter @Setter
+    private long maxFileBytes = 64L * 1024 * 1024;
+
+    @Getter @Setter
+    private int maxQueryResults = 10000;
+}
@@ -0,0 +1,35 @@
+package com.michaelpippolito.utils.journal;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+public class JournalController {
+
+    @Autowired
+    private TransferJournal transferJournal;
+
+    /*
+        from and to are epoch milliseconds, from inclusive and to exclusive. The path prefix also matches the target
+        of a rename
+     */
+    @GetMapping("/journal/sftp")
+    public ResponseEntity<List<JournalRecord>> getSftpJournal(
+            @RequestParam(required = false) Integer port,
+            @RequestParam(required = false) String pathPrefix,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(required = false) Integer limit
+    ) throws IOException {
+        if (!transferJournal.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(transferJournal.query(port, pathPrefix, from, to, limit));
+    }
+}
@@ -0,0 +1,30 @@
+package com.michaelpippolito.utils.journal;
+
+public enum JournalOperation {
+    /*
+        A file handle closed after writing, or opened for writing, with the bytes written through it
+     */
+    UPLOAD,
+
+    /*
+        A file handle closed after reading, with the bytes read through it
+     */
+    DOWNLOAD,
+
+    /*
+        A file handle closed without any data moving, or an open that failed
+     */
+    OPEN,
+
+    LIST,
+    RENAME,
+    REMOVE,
+    MKDIR,
+    RMDIR,
+
+    /*
+        A copy-file or copy-data request served by the server, with the bytes copied. Journal files store operations
+        by ordinal, so new ones go last
+     */
+    COPY
+}
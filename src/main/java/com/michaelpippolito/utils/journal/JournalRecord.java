@@ -0,0 +1,52 @@
+package com.michaelpippolito.utils.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class JournalRecord {
+    @Getter @Setter
+    private long timestamp;
+
+    @Getter @Setter
+    private int port;
+
+    /*
+        Id of the SSH session, shared by every record of one client connection
+     */
+    @Getter @Setter
+    private long session;
+
+    @Getter @Setter
+    private String user;
+
+    @Getter @Setter
+    private JournalOperation operation;
+
+    @Getter @Setter
+    private String path;
+
+    /*
+        Destination of a rename
+     */
+    @Getter @Setter
+    private String targetPath;
+
+    @Getter @Setter
+    private long bytes;
+
+    /*
+        From opening the handle to closing it for transfers, otherwise the operation itself
+     */
+    @Getter @Setter
+    private long durationMicros;
+
+    @Getter @Setter
+    private boolean success;
+
+    @Getter @Setter
+    private String error;
+}
@@ -0,0 +1,103 @@
+package com.michaelpippolito.utils.journal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/*
+    Preallocated ring of record slots with any number of producers and a single consumer. A producer claims the next
+    sequence with a compare-and-set, fills the slot in place and publishes it by writing the sequence into the slot, so
+    neither side takes a lock and recording allocates nothing. A producer that finds the ring full drops its record
+    instead of waiting for the consumer
+ */
+public class JournalRingBuffer {
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile long consumed;
+
+    public JournalRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    public boolean offer(long timestamp, int port, long session, String user, JournalOperation operation, String path, String targetPath, long bytes, long durationMicros, String error) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.timestamp = timestamp;
+        slot.port = port;
+        slot.session = session;
+        slot.user = user;
+        slot.operation = operation;
+        slot.path = path;
+        slot.targetPath = targetPath;
+        slot.bytes = bytes;
+        slot.durationMicros = durationMicros;
+        slot.error = error;
+        slot.published = sequence;
+        return true;
+    }
+
+    /*
+        Hands every published slot to the consumer in sequence order and stops at the first gap, a slot claimed but
+        not yet published is picked up by the next drain. Must only be called by one thread at a time
+     */
+    public int drain(Consumer<Slot> consumer) {
+        long next = consumed;
+        int drained = 0;
+        while (true) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.published != next) {
+                return drained;
+            }
+            consumer.accept(slot);
+            slot.user = null;
+            slot.path = null;
+            slot.targetPath = null;
+            slot.error = null;
+            consumed = ++next;
+            drained++;
+        }
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public static class Slot {
+        private volatile long published = -1;
+
+        long timestamp;
+        int port;
+        long session;
+        String user;
+        JournalOperation operation;
+        String path;
+        String targetPath;
+        long bytes;
+        long durationMicros;
+        String error;
+
+        public JournalRecord toRecord() {
+            return new JournalRecord(timestamp, port, session, user, operation, path, targetPath, bytes, durationMicros, error == null, error);
+        }
+    }
+}
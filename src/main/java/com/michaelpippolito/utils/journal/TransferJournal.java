@@ -0,0 +1,228 @@
+package com.michaelpippolito.utils.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Journal of SFTP operations across every server. Records are captured on a JournalRingBuffer and appended to the
+    journal file in batches by a single flusher thread, so the transfer that produced a record never waits on the disk.
+    Each record is written as fixed-width numbers and length-prefixed strings, and a partially written last record is
+    ignored when reading
+ */
+@Component
+@Slf4j
+public class TransferJournal {
+    private static final String FILE_NAME = "sftp-journal.bin";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private JournalConfig config;
+
+    private JournalRingBuffer ringBuffer;
+    private ScheduledExecutorService flushExecutor;
+    private Path file;
+    private Path previousFile;
+    private DataOutputStream out;
+
+    @PostConstruct
+    public void init() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Path directory = Paths.get(config.getDirectory());
+        try {
+            Files.createDirectories(directory);
+            file = directory.resolve(FILE_NAME);
+            previousFile = directory.resolve(FILE_NAME + ".1");
+            out = open(file);
+        } catch (IOException e) {
+            log.error("Failed to open transfer journal in " + directory + ", journal disabled -- " + ExceptionUtils.getStackTrace(e));
+            return;
+        }
+        ringBuffer = new JournalRingBuffer(config.getBufferSize());
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("transfer-journal-"));
+        flushExecutor.scheduleWithFixedDelay(this::flush, config.getFlushIntervalMillis(), config.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (ringBuffer == null) {
+            return;
+        }
+        flushExecutor.shutdownNow();
+        flush();
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.error("Failed to close transfer journal -- " + ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    public boolean isEnabled() {
+        return ringBuffer != null;
+    }
+
+    public void record(int port, long session, String user, JournalOperation operation, String path, String targetPath, long bytes, long durationNanos, Throwable thrown) {
+        if (ringBuffer != null) {
+            ringBuffer.offer(
+                    System.currentTimeMillis(),
+                    port,
+                    session,
+                    user,
+                    operation,
+                    path,
+                    targetPath,
+                    bytes,
+                    TimeUnit.NANOSECONDS.toMicros(durationNanos),
+                    thrown == null ? null : StringUtils.abbreviate(thrown.getClass().getSimpleName() + ": " + thrown.getMessage(), MAX_ERROR_LENGTH)
+            );
+        }
+    }
+
+    public long getDropped() {
+        return ringBuffer == null ? 0 : ringBuffer.getDropped();
+    }
+
+    public synchronized void flush() {
+        if (ringBuffer == null) {
+            return;
+        }
+        try {
+            ringBuffer.drain(slot -> write(slot.toRecord()));
+            out.flush();
+            if (Files.size(file) >= config.getMaxFileBytes()) {
+                out.close();
+                Files.move(file, previousFile, StandardCopyOption.REPLACE_EXISTING);
+                out = open(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to flush transfer journal -- " + ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    /*
+        Returns the latest matching records, oldest first, up to the limit. Everything recorded before the call is
+        flushed first, and the files are only read up to where that flush left them, so later writes are not waited on
+     */
+    public List<JournalRecord> query(Integer port, String pathPrefix, Long from, Long to, Integer limit) throws IOException {
+        int maxResults = limit == null ? config.getMaxQueryResults() : Math.min(Math.max(limit, 0), config.getMaxQueryResults());
+        long previousLength;
+        long length;
+        synchronized (this) {
+            flush();
+            previousLength = Files.exists(previousFile) ? Files.size(previousFile) : 0;
+            length = Files.size(file);
+        }
+
+        Deque<JournalRecord> records = new ArrayDeque<JournalRecord>();
+        for (Path journalFile : new Path[]{previousFile, file}) {
+            long journalLength = journalFile == file ? length : previousLength;
+            if (journalLength == 0) {
+                continue;
+            }
+            try (InputStream fileIn = Files.newInputStream(journalFile);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(new BoundedInputStream(fileIn, journalLength)))) {
+                while (true) {
+                    JournalRecord record = read(in);
+                    if (record == null) {
+                        break;
+                    }
+                    if (matches(record, port, pathPrefix, from, to)) {
+                        records.addLast(record);
+                        if (records.size() > maxResults) {
+                            records.removeFirst();
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<JournalRecord>(records);
+    }
+
+    private boolean matches(JournalRecord record, Integer port, String pathPrefix, Long from, Long to) {
+        return (port == null || record.getPort() == port)
+                && (pathPrefix == null || StringUtils.startsWith(record.getPath(), pathPrefix) || StringUtils.startsWith(record.getTargetPath(), pathPrefix))
+                && (from == null || record.getTimestamp() >= from)
+                && (to == null || record.getTimestamp() < to);
+    }
+
+    private DataOutputStream open(Path journalFile) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(journalFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)
+        ));
+    }
+
+    private void write(JournalRecord record) {
+        try {
+            out.writeLong(record.getTimestamp());
+            out.writeInt(record.getPort());
+            out.writeLong(record.getSession());
+            out.writeUTF(StringUtils.defaultString(record.getUser()));
+            out.writeByte(record.getOperation().ordinal());
+            out.writeUTF(StringUtils.defaultString(record.getPath()));
+            out.writeUTF(StringUtils.defaultString(record.getTargetPath()));
+            out.writeLong(record.getBytes());
+            out.writeLong(record.getDurationMicros());
+            out.writeUTF(StringUtils.defaultString(record.getError()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private JournalRecord read(DataInputStream in) throws IOException {
+        try {
+            long timestamp = in.readLong();
+            int port = in.readInt();
+            long session = in.readLong();
+            String user = in.readUTF();
+            JournalOperation operation = JournalOperation.values()[in.readByte()];
+            String path = in.readUTF();
+            String targetPath = in.readUTF();
+            long bytes = in.readLong();
+            long durationMicros = in.readLong();
+            String error = in.readUTF();
+            return new JournalRecord(
+                    timestamp,
+                    port,
+                    session,
+                    StringUtils.defaultIfEmpty(user, null),
+                    operation,
+                    path,
+                    StringUtils.defaultIfEmpty(targetPath, null),
+                    bytes,
+                    durationMicros,
+                    error.isEmpty(),
+                    StringUtils.defaultIfEmpty(error, null)
+            );
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.michaelpippolito.utils.loadtest;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "loadtest")
+public class LoadTestConfig {
+    @Getter @Setter
+    private int maxSessions = 512;
+
+    @Getter @Setter
+    private long maxDurationMillis = 600000;
+
+    @Getter @Setter
+    private int connectTimeoutMillis = 10000;
+}
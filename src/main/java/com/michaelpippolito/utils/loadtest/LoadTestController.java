@@ -0,0 +1,80 @@
+package com.michaelpippolito.utils.loadtest;
+
+import com.michaelpippolito.utils.server.ServerCommandJobStatus;
+import com.michaelpippolito.utils.server.ServerCommandStatus;
+import com.michaelpippolito.utils.sftp.SftpConfig;
+import com.michaelpippolito.utils.sftp.SftpJobManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.net.URI;
+
+@RestController
+public class LoadTestController {
+
+    @Autowired
+    private SftpLoadGenerator sftpLoadGenerator;
+
+    @Autowired
+    private SftpJobManager sftpJobManager;
+
+    @Autowired
+    private LoadTestConfig config;
+
+    @Autowired
+    private SftpConfig sftpConfig;
+
+    /*
+        Runs the load test as a job and parks the request, without holding a servlet thread, until it completes. Should
+        it take longer than its ramp-up and duration plus two connect timeouts, the request is answered with 202 and
+        the location of the job instead
+     */
+    @PostMapping("/loadtest/sftp")
+    public DeferredResult<ResponseEntity<LoadTestResponse>> runSftpLoadTest(@RequestBody LoadTestRequest request) {
+        LoadTestJob job = sftpJobManager.submitLoadTest(request, sftpLoadGenerator.runAsync(request));
+        long timeoutMillis = Math.max(request.getRampUpMillis(), 0) + Math.max(request.getDurationMillis(), 0) + 2L * config.getConnectTimeoutMillis();
+        DeferredResult<ResponseEntity<LoadTestResponse>> result = new DeferredResult<ResponseEntity<LoadTestResponse>>(timeoutMillis);
+        result.onTimeout(() -> result.setResult(ResponseEntity.accepted().location(URI.create("/loadtest/jobs/" + job.getJobId())).build()));
+        sftpJobManager.getLoadTestCompletion(job.getJobId()).thenAccept(completedJob -> result.setResult(loadTestResponse(completedJob.getResponse())));
+        return result;
+    }
+
+    @PostMapping("/loadtest/sftp/async")
+    public ResponseEntity<LoadTestJob> runSftpLoadTestAsync(@RequestBody LoadTestRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                sftpJobManager.submitLoadTest(request, sftpLoadGenerator.runAsync(request))
+        );
+    }
+
+    /*
+        With waitMillis the request is parked, without holding a servlet thread, until the load test completes or the
+        wait runs out, whichever comes first
+     */
+    @GetMapping("/loadtest/jobs/{jobId}")
+    public DeferredResult<ResponseEntity<LoadTestJob>> getLoadTestJob(@PathVariable String jobId, @RequestParam(defaultValue = "0") long waitMillis) {
+        DeferredResult<ResponseEntity<LoadTestJob>> result = new DeferredResult<ResponseEntity<LoadTestJob>>(
+                Math.max(1, Math.min(waitMillis, sftpConfig.getMaxJobWaitMillis()))
+        );
+        LoadTestJob job = sftpJobManager.getLoadTestJob(jobId);
+        if (job == null) {
+            result.setResult(ResponseEntity.notFound().build());
+        } else if (waitMillis <= 0 || job.getJobStatus().equals(ServerCommandJobStatus.COMPLETED)) {
+            result.setResult(ResponseEntity.ok(job));
+        } else {
+            result.onTimeout(() -> result.setResult(ResponseEntity.ok(sftpJobManager.getLoadTestJob(jobId))));
+            sftpJobManager.getLoadTestCompletion(jobId).thenAccept(completedJob -> result.setResult(ResponseEntity.ok(completedJob)));
+        }
+        return result;
+    }
+
+    private ResponseEntity<LoadTestResponse> loadTestResponse(LoadTestResponse response) {
+        if (response.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+            return ResponseEntity.status(HttpStatus.OK).body(response);
+        } else {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+}
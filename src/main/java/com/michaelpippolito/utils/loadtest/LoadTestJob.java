@@ -0,0 +1,32 @@
+package com.michaelpippolito.utils.loadtest;
+
+import com.michaelpippolito.utils.server.ServerCommandJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoadTestJob {
+    @Getter @Setter
+    private String jobId;
+
+    @Getter @Setter
+    private int port;
+
+    @Getter @Setter
+    private ServerCommandJobStatus jobStatus;
+
+    /*
+        Null until the load test has completed
+     */
+    @Getter @Setter
+    private LoadTestResponse response;
+
+    @Getter @Setter
+    private long submittedAt;
+
+    @Getter @Setter
+    private long completedAt;
+}
@@ -0,0 +1,5 @@
+package com.michaelpippolito.utils.loadtest;
+
+public enum LoadTestOperation {
+    PUT, GET, LS, RM
+}
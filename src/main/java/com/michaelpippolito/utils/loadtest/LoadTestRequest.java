@@ -0,0 +1,39 @@
+package com.michaelpippolito.utils.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Map;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoadTestRequest {
+    @Getter @Setter
+    private String host = "localhost";
+
+    @Getter @Setter
+    private int port;
+
+    @Getter @Setter
+    private int sessions = 1;
+
+    @Getter @Setter
+    private long durationMillis = 10000;
+
+    /*
+        Sessions are connected evenly spread over the ramp-up, and all of them run until the same deadline
+     */
+    @Getter @Setter
+    private long rampUpMillis;
+
+    @Getter @Setter
+    private int fileSizeBytes = 1024;
+
+    /*
+        Relative weight of each operation, e.g. {"PUT": 1, "GET": 3}. Operations that are left out are never run
+     */
+    @Getter @Setter
+    private Map<LoadTestOperation, Integer> mix;
+}
@@ -0,0 +1,42 @@
+package com.michaelpippolito.utils.loadtest;
+
+import com.michaelpippolito.utils.metrics.LatencySummary;
+import com.michaelpippolito.utils.server.ServerCommandStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+@AllArgsConstructor
+public class LoadTestResponse {
+    @Getter @Setter
+    private ServerCommandStatus commandStatus;
+
+    @Getter @Setter
+    private String message;
+
+    @Getter @Setter
+    private int sessions;
+
+    @Getter @Setter
+    private int failedSessions;
+
+    @Getter @Setter
+    private long elapsedMillis;
+
+    @Getter @Setter
+    private long operations;
+
+    @Getter @Setter
+    private double operationsPerSecond;
+
+    @Getter @Setter
+    private long bytesTransferred;
+
+    @Getter @Setter
+    private double bytesPerSecond;
+
+    @Getter @Setter
+    private Map<LoadTestOperation, LatencySummary> latencies;
+}
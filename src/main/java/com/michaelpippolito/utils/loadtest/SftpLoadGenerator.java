@@ -0,0 +1,265 @@
+package com.michaelpippolito.utils.loadtest;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import com.michaelpippolito.utils.metrics.LatencyHistogram;
+import com.michaelpippolito.utils.metrics.LatencySummary;
+import com.michaelpippolito.utils.server.ServerCommandStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Drives concurrent JSch sessions against an SFTP Server and reports throughput and latency percentiles per operation.
+    Sessions connect spread evenly over the ramp-up and each runs its mix for the requested duration once connected, so
+    throughput is measured from the first operation to the last rather than including the handshakes. Every session
+    works in its own directory so that listings and removals do not interfere with each other, and cleans it up once
+    the run is over
+ */
+@Component
+@Slf4j
+public class SftpLoadGenerator {
+
+    @Autowired
+    private LoadTestConfig config;
+
+    private AtomicInteger runs = new AtomicInteger();
+
+    /*
+        Runs the load tests themselves, so no request thread waits on one for its whole duration
+     */
+    private ExecutorService runExecutor;
+
+    @PostConstruct
+    public void init() {
+        runExecutor = Executors.newCachedThreadPool(new CustomizableThreadFactory("sftp-load-run-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        runExecutor.shutdownNow();
+    }
+
+    public CompletableFuture<LoadTestResponse> runAsync(LoadTestRequest request) {
+        return CompletableFuture.supplyAsync(() -> run(request), runExecutor);
+    }
+
+    public LoadTestResponse run(LoadTestRequest request) {
+        String invalid = validate(request);
+        if (invalid != null) {
+            return new LoadTestResponse(ServerCommandStatus.FAILED, invalid, request.getSessions(), 0, 0, 0, 0, 0, 0, new EnumMap<LoadTestOperation, LatencySummary>(LoadTestOperation.class));
+        }
+
+        Map<LoadTestOperation, LatencyHistogram> histograms = new EnumMap<LoadTestOperation, LatencyHistogram>(LoadTestOperation.class);
+        for (Map.Entry<LoadTestOperation, Integer> weight : request.getMix().entrySet()) {
+            if (weight.getValue() != null && weight.getValue() > 0) {
+                histograms.put(weight.getKey(), new LatencyHistogram());
+            }
+        }
+        LoadTestOperation[] operations = histograms.keySet().toArray(new LoadTestOperation[0]);
+        int[] weights = new int[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            weights[i] = (i == 0 ? 0 : weights[i - 1]) + request.getMix().get(operations[i]);
+        }
+        byte[] payload = new byte[request.getFileSizeBytes()];
+        new Random().nextBytes(payload);
+        String runDirectory = "load-test-" + System.currentTimeMillis() + "-" + runs.incrementAndGet();
+        LongAdder bytes = new LongAdder();
+        LongAccumulator firstOperation = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        LongAccumulator lastOperation = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        log.info("Starting load test of " + request.getSessions() + " sessions against " + request.getHost() + ":" + request.getPort() + "...");
+        ExecutorService executor = Executors.newFixedThreadPool(request.getSessions(), new CustomizableThreadFactory("sftp-load-"));
+        long start = System.nanoTime();
+        int failedSessions = 0;
+        try {
+            List<Future<?>> sessions = new ArrayList<Future<?>>();
+            for (int i = 0; i < request.getSessions(); i++) {
+                long startAt = start + TimeUnit.MILLISECONDS.toNanos(request.getRampUpMillis() * i / request.getSessions());
+                String directory = runDirectory + "-" + i;
+                sessions.add(executor.submit(() -> {
+                    runSession(request, directory, startAt, operations, weights, payload, histograms, bytes, firstOperation, lastOperation);
+                    return null;
+                }));
+            }
+            for (Future<?> session : sessions) {
+                try {
+                    session.get();
+                } catch (ExecutionException e) {
+                    failedSessions++;
+                    log.error("Load test session failed -- " + ExceptionUtils.getStackTrace(e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new LoadTestResponse(ServerCommandStatus.INTERNAL_ERROR, "Load test was interrupted", request.getSessions(), failedSessions, 0, 0, 0, 0, 0, new EnumMap<LoadTestOperation, LatencySummary>(LoadTestOperation.class));
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long completed = 0;
+        Map<LoadTestOperation, LatencySummary> latencies = new EnumMap<LoadTestOperation, LatencySummary>(LoadTestOperation.class);
+        for (Map.Entry<LoadTestOperation, LatencyHistogram> histogram : histograms.entrySet()) {
+            LatencySummary summary = histogram.getValue().summarize();
+            latencies.put(histogram.getKey(), summary);
+            completed += summary.getCount();
+        }
+        double seconds = completed == 0 ? 1 : Math.max(lastOperation.get() - firstOperation.get(), 1) / 1e9;
+        log.info("Load test against " + request.getHost() + ":" + request.getPort() + " completed " + completed + " operations in " + elapsedMillis + "ms");
+
+        return new LoadTestResponse(
+                failedSessions == 0 ? ServerCommandStatus.SUCCESS : ServerCommandStatus.FAILED,
+                failedSessions == 0 ? null : failedSessions + " of " + request.getSessions() + " sessions failed",
+                request.getSessions(),
+                failedSessions,
+                elapsedMillis,
+                completed,
+                completed / seconds,
+                bytes.sum(),
+                bytes.sum() / seconds,
+                latencies
+        );
+    }
+
+    private String validate(LoadTestRequest request) {
+        if (request.getPort() < 1 || request.getPort() > 65535) {
+            return "Invalid port " + request.getPort();
+        }
+        if (request.getSessions() < 1 || request.getSessions() > config.getMaxSessions()) {
+            return "Sessions must be between 1 and " + config.getMaxSessions();
+        }
+        if (request.getDurationMillis() < 1 || request.getRampUpMillis() < 0 || request.getRampUpMillis() + request.getDurationMillis() > config.getMaxDurationMillis()) {
+            return "Ramp-up and duration must add up to at most " + config.getMaxDurationMillis() + "ms";
+        }
+        if (request.getFileSizeBytes() < 0) {
+            return "Invalid file size " + request.getFileSizeBytes();
+        }
+        if (request.getMix() == null || request.getMix().values().stream().noneMatch(weight -> weight != null && weight > 0)) {
+            return "At least one operation must have a positive weight";
+        }
+        return null;
+    }
+
+    private void runSession(
+            LoadTestRequest request,
+            String directory,
+            long startAt,
+            LoadTestOperation[] operations,
+            int[] weights,
+            byte[] payload,
+            Map<LoadTestOperation, LatencyHistogram> histograms,
+            LongAdder bytes,
+            LongAccumulator firstOperation,
+            LongAccumulator lastOperation
+    ) throws JSchException, SftpException, InterruptedException {
+        long delay = startAt - System.nanoTime();
+        if (delay > 0) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+
+        Session session = new JSch().getSession("loadtest", request.getHost(), request.getPort());
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect(config.getConnectTimeoutMillis());
+        try {
+            ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+            channelSftp.connect(config.getConnectTimeoutMillis());
+            channelSftp.mkdir(directory);
+            channelSftp.cd(directory);
+
+            /*
+                Seed a file so that the first GET or RM always has something to work on
+             */
+            List<String> files = new ArrayList<String>();
+            int sequence = 0;
+            channelSftp.put(new ByteArrayInputStream(payload), sequence + ".bin");
+            files.add(sequence++ + ".bin");
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(request.getDurationMillis());
+            firstOperation.accumulate(System.nanoTime());
+            while (System.nanoTime() < deadline && channelSftp.isConnected() && !Thread.currentThread().isInterrupted()) {
+                LoadTestOperation operation = pick(operations, weights, random.nextInt(weights[weights.length - 1]));
+                if (operation == LoadTestOperation.RM && files.size() < 2) {
+                    channelSftp.put(new ByteArrayInputStream(payload), sequence + ".bin");
+                    files.add(sequence++ + ".bin");
+                }
+
+                boolean failed = false;
+                long began = System.nanoTime();
+                try {
+                    switch (operation) {
+                        case PUT:
+                            channelSftp.put(new ByteArrayInputStream(payload), sequence + ".bin");
+                            files.add(sequence++ + ".bin");
+                            bytes.add(payload.length);
+                            break;
+                        case GET:
+                            channelSftp.get(files.get(random.nextInt(files.size())), NullOutputStream.NULL_OUTPUT_STREAM);
+                            bytes.add(payload.length);
+                            break;
+                        case LS:
+                            channelSftp.ls(".");
+                            break;
+                        case RM:
+                            channelSftp.rm(files.remove(files.size() - 1));
+                            break;
+                    }
+                } catch (SftpException e) {
+                    failed = true;
+                }
+                histograms.get(operation).record(System.nanoTime() - began, failed);
+            }
+            lastOperation.accumulate(System.nanoTime());
+
+            if (channelSftp.isConnected()) {
+                for (String file : files) {
+                    channelSftp.rm(file);
+                }
+                channelSftp.cd("..");
+                channelSftp.rmdir(directory);
+                channelSftp.exit();
+            }
+        } finally {
+            session.disconnect();
+        }
+    }
+
+    /*
+        Weights are cumulative, so the first operation whose running total exceeds the roll is picked with the
+        requested probability
+     */
+    private static LoadTestOperation pick(LoadTestOperation[] operations, int[] weights, int roll) {
+        for (int i = 0; i < weights.length - 1; i++) {
+            if (roll < weights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+}
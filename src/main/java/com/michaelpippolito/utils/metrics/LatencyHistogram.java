@@ -0,0 +1,116 @@
+package com.michaelpippolito.utils.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Lock-free latency histogram in microseconds. Every power of two is split into 32 linear sub-buckets the way
+    HdrHistogram does it, so a latency is known to within 1/32 (about 3%) of its value, and latencies below 32us
+    exactly. Recording only touches pre-allocated counters, so it is safe to call from I/O threads on every operation
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /*
+        Latencies of 2^40us (about 12 days) or more are counted in the last bucket
+     */
+    private static final int MAX_EXPONENT = 39;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos, boolean failed) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+        buckets.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public void recordCount(boolean failed) {
+        count.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public LatencySummary summarize() {
+        long[] counts = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            recorded += counts[i];
+        }
+
+        /*
+            The sub-buckets are summed back into powers of two, which is plenty for the shape of the distribution
+         */
+        Map<Long, Long> histogram = new LinkedHashMap<Long, Long>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                histogram.merge(Math.max(1, Long.highestOneBit(upperBoundMicros(i)) << 1), counts[i], Long::sum);
+            }
+        }
+
+        long max = maxMicros.get();
+        return new LatencySummary(
+                count.sum(),
+                errors.sum(),
+                totalMicros.sum(),
+                max,
+                percentile(counts, recorded, 0.50, max),
+                percentile(counts, recorded, 0.95, max),
+                percentile(counts, recorded, 0.99, max),
+                histogram
+        );
+    }
+
+    /*
+        The largest latency the bucket holding the percentile can contain, which is never more than the largest latency
+        recorded
+     */
+    private static long percentile(long[] counts, long recorded, double percentile, long max) {
+        long rank = (long) Math.ceil(recorded * percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBoundMicros(i), max);
+            }
+        }
+        return 0;
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long upperBoundMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,40 @@
+package com.michaelpippolito.utils.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+@AllArgsConstructor
+public class LatencySummary {
+    @Getter @Setter
+    private long count;
+
+    @Getter @Setter
+    private long errors;
+
+    @Getter @Setter
+    private long totalMicros;
+
+    @Getter @Setter
+    private long maxMicros;
+
+    /*
+        Percentiles are the upper bound of the histogram bucket they fall in, at most about 3% above the real latency
+     */
+    @Getter @Setter
+    private long p50Micros;
+
+    @Getter @Setter
+    private long p95Micros;
+
+    @Getter @Setter
+    private long p99Micros;
+
+    /*
+        Power-of-two bucket upper bound in microseconds to the number of operations in that bucket
+     */
+    @Getter @Setter
+    private Map<Long, Long> histogram;
+}
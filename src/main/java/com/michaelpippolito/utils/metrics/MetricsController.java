@@ -0,0 +1,49 @@
+package com.michaelpippolito.utils.metrics;
+
+import com.michaelpippolito.utils.sftp.SftpHelper;
+import com.michaelpippolito.utils.sftp.SftpMetrics;
+import com.michaelpippolito.utils.sftp.SftpPortMetrics;
+import com.michaelpippolito.utils.sftp.SubsystemExecutorMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+public class MetricsController {
+
+    @Autowired
+    private SftpMetrics sftpMetrics;
+
+    @Autowired
+    private SftpHelper sftpHelper;
+
+    @GetMapping("/metrics/sftp")
+    public ResponseEntity<Map<Integer, SftpPortMetrics>> getSftpMetrics() {
+        return ResponseEntity.ok(sftpMetrics.getMetrics());
+    }
+
+    @GetMapping("/metrics/sftp/{port}")
+    public ResponseEntity<SftpPortMetrics> getSftpMetrics(@PathVariable int port) {
+        SftpPortMetrics metrics = sftpMetrics.getMetrics(port);
+        if (metrics == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(metrics);
+    }
+
+    /*
+        Not found when every SFTP channel gets its own thread
+     */
+    @GetMapping("/metrics/sftp/executor")
+    public ResponseEntity<SubsystemExecutorMetrics> getSftpExecutorMetrics() {
+        SubsystemExecutorMetrics metrics = sftpHelper.getSubsystemExecutorMetrics();
+        if (metrics == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(metrics);
+    }
+}
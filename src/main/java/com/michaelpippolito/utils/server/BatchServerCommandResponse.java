@@ -0,0 +1,26 @@
+package com.michaelpippolito.utils.server;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/*
+    Responses and timings are in the same order as the requests of the batch. A successful start reports the port it
+    bound in its response
+ */
+@AllArgsConstructor
+public class BatchServerCommandResponse {
+    @Getter @Setter
+    private ServerCommandStatus commandStatus;
+
+    @Getter @Setter
+    private List<ServerCommandResponse> responses;
+
+    @Getter @Setter
+    private List<Long> requestMillis;
+
+    @Getter @Setter
+    private long elapsedMillis;
+}
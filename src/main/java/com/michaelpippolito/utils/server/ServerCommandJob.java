@@ -0,0 +1,29 @@
+package com.michaelpippolito.utils.server;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+public class ServerCommandJob {
+    @Getter @Setter
+    private String jobId;
+
+    @Getter @Setter
+    private int port;
+
+    @Getter @Setter
+    private ServerCommandJobStatus jobStatus;
+
+    /*
+        Null until the job has completed
+     */
+    @Getter @Setter
+    private ServerCommandResponse response;
+
+    @Getter @Setter
+    private long submittedAt;
+
+    @Getter @Setter
+    private long completedAt;
+}
@@ -0,0 +1,5 @@
+package com.michaelpippolito.utils.server;
+
+public enum ServerCommandJobStatus {
+    PENDING, COMPLETED
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Map;
+
 @AllArgsConstructor
 public class ServerCommandResponse {
     @Getter @Setter
@@ -17,4 +19,24 @@ public class ServerCommandResponse {
 
     @Getter @Setter
     private String message;
+
+    /*
+        Effective settings of the server after a successful start
+     */
+    @Getter @Setter
+    private Map<String, Long> settings;
+
+    /*
+        Port the server is bound to after a successful start, which is the one picked when an ephemeral port or a port
+        range was asked for
+     */
+    @Getter @Setter
+    private Integer port;
+
+    public ServerCommandResponse(ServerCommandStatus commandStatus, ServerStatus serverStatus, ServerType serverType, String message) {
+        this(commandStatus, serverStatus, serverType, message, null, null);
+    }
+
+    public ServerCommandResponse() {
+    }
 }
@@ -1,40 +1,54 @@
 package com.michaelpippolito.utils.server;
 
 import lombok.Getter;
-import lombok.Setter;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class ServerManager {
-    @Getter @Setter
-    private Map<Integer, ServerType> servers = new HashMap<>();
+    private static final int PORT_LOCK_STRIPES = 64;
+
+    @Getter
+    private final ConcurrentMap<Integer, ServerType> servers = new ConcurrentHashMap<>();
+
+    /*
+        Ports are hashed onto a fixed set of locks so that lifecycle operations on the same port are serialized while
+        operations on different ports can run in parallel without a single global lock
+     */
+    private final Lock[] portLocks = new Lock[PORT_LOCK_STRIPES];
+
+    public ServerManager() {
+        for (int i = 0; i < portLocks.length; i++) {
+            portLocks[i] = new ReentrantLock();
+        }
+    }
 
     public boolean isPortInUse(int port) {
         return servers.containsKey(port);
     }
 
     public boolean isServerOfType(int port, ServerType type) {
-        if (servers.containsKey(port)) {
-            return servers.get(port).equals(type);
-        }
-        return false;
+        return type.equals(servers.get(port));
     }
 
     public boolean occupyPort(int port, ServerType type) {
-        if (!servers.containsKey(port)) {
-            servers.put(port, type);
-            return true;
-        } else return isServerOfType(port, type);
+        ServerType existingType = servers.putIfAbsent(port, type);
+        return existingType == null || existingType.equals(type);
     }
 
-    public void abandonPort(int port) {
-        servers.remove(port);
+    public boolean abandonPort(int port, ServerType type) {
+        return servers.remove(port, type);
     }
 
     public ServerType getServerType(int port) {
         return servers.get(port);
     }
+
+    public Lock getPortLock(int port) {
+        return portLocks[Math.floorMod(port, portLocks.length)];
+    }
 }
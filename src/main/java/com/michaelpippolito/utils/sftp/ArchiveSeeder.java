@@ -0,0 +1,236 @@
+package com.michaelpippolito.utils.sftp;
+
+import com.michaelpippolito.utils.server.ServerCommandStatus;
+import com.michaelpippolito.utils.server.ServerStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+    Extracts a zip or tar archive, optionally gzip or bzip2 compressed, into a server's root while it is being read.
+    The archive is read once by the calling thread: directories are created as they come, small files are read into
+    memory and written by the seed pool, and files above INLINE_THRESHOLD_BYTES or of unknown size are streamed to disk
+    by the reader itself. The bytes waiting for the pool are capped by seedMaxBufferedBytes, so neither the archive nor
+    its contents are ever held in memory as a whole
+ */
+@Component
+@Slf4j
+public class ArchiveSeeder {
+    private static final int INLINE_THRESHOLD_BYTES = 1024 * 1024;
+
+    /*
+        Every queued file is charged at least a block, so archives of tiny files are bounded by count as well
+     */
+    private static final int MIN_CHARGE_BYTES = 4096;
+
+    @Autowired
+    private SftpConfig config;
+
+    private ExecutorService seedExecutor;
+
+    @PostConstruct
+    public void init() {
+        seedExecutor = Executors.newFixedThreadPool(config.getSeedThreads(), new CustomizableThreadFactory("sftp-seed-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        seedExecutor.shutdownNow();
+    }
+
+    public SeedSftpServerResponse seed(Path root, InputStream archive) throws IOException {
+        long startTime = System.nanoTime();
+        Path normalizedRoot = root.toAbsolutePath().normalize();
+        Semaphore buffered = new Semaphore(Math.max(config.getSeedMaxBufferedBytes(), INLINE_THRESHOLD_BYTES));
+        AtomicInteger pending = new AtomicInteger();
+        AtomicReference<IOException> failure = new AtomicReference<IOException>();
+        Set<Path> createdDirectories = new HashSet<Path>();
+        long files = 0;
+        long directories = 0;
+        long skippedEntries = 0;
+        long bytes = 0;
+
+        try (ArchiveInputStream entries = open(archive)) {
+            ArchiveEntry entry;
+            while (failure.get() == null && (entry = entries.getNextEntry()) != null) {
+                Path target = resolve(normalizedRoot, entry.getName());
+                if (entry.isDirectory()) {
+                    createDirectories(target, createdDirectories);
+                    directories++;
+                    continue;
+                } else if (!isRegularFile(entry)) {
+                    skippedEntries++;
+                    continue;
+                } else if (!entries.canReadEntryData(entry)) {
+                    throw new IOException("Unsupported compression or encryption of archive entry " + entry.getName());
+                }
+
+                createDirectories(target.getParent(), createdDirectories);
+                files++;
+                if (entry.getSize() < 0 || entry.getSize() > INLINE_THRESHOLD_BYTES) {
+                    bytes += Files.copy(entries, target, StandardCopyOption.REPLACE_EXISTING);
+                    continue;
+                }
+
+                byte[] data = IOUtils.toByteArray(entries, entry.getSize());
+                bytes += data.length;
+                int charge = Math.max(data.length, MIN_CHARGE_BYTES);
+                acquire(buffered, charge);
+                pending.incrementAndGet();
+                seedExecutor.execute(() -> {
+                    try {
+                        write(target, data);
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        buffered.release(charge);
+                        if (pending.decrementAndGet() == 0) {
+                            synchronized (pending) {
+                                pending.notifyAll();
+                            }
+                        }
+                    }
+                });
+            }
+        } finally {
+            awaitWrites(pending);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        return new SeedSftpServerResponse(
+                ServerCommandStatus.SUCCESS,
+                ServerStatus.UP,
+                "Seeded " + files + " files and " + directories + " directories (" + bytes + " bytes) in " + elapsedMillis + "ms!",
+                files,
+                directories,
+                skippedEntries,
+                bytes,
+                elapsedMillis
+        );
+    }
+
+    /*
+        Both detections only peek at the leading bytes, which the buffered stream resets afterwards. Zip entries are
+        read with stored entries allowed to use data descriptors, which is how most streaming zip writers emit them
+     */
+    private ArchiveInputStream open(InputStream archive) throws IOException {
+        InputStream in = new BufferedInputStream(archive);
+        try {
+            String compression = CompressorStreamFactory.detect(in);
+            in = new BufferedInputStream(new CompressorStreamFactory().createCompressorInputStream(compression, in));
+        } catch (CompressorException e) {
+            /*
+                Not compressed, or compressed with something we cannot read, which archive detection reports below
+             */
+        }
+
+        try {
+            String format = ArchiveStreamFactory.detect(in);
+            if (ArchiveStreamFactory.ZIP.equals(format)) {
+                return new ZipArchiveInputStream(in, "UTF8", true, true);
+            }
+            return new ArchiveStreamFactory().createArchiveInputStream(format, in);
+        } catch (ArchiveException e) {
+            throw new IOException("Not a readable zip or tar archive -- " + e.getMessage(), e);
+        }
+    }
+
+    private Path resolve(Path root, String name) throws IOException {
+        Path target = root.resolve(StringUtils.stripStart(name, "/")).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("Archive entry " + name + " is outside the server root");
+        }
+        return target;
+    }
+
+    /*
+        TarArchiveEntry.isFile() is true for every entry whose name does not end in a slash, links and devices
+        included, so those are ruled out by their type
+     */
+    private boolean isRegularFile(ArchiveEntry entry) {
+        if (entry instanceof TarArchiveEntry) {
+            TarArchiveEntry tarEntry = (TarArchiveEntry) entry;
+            return tarEntry.isFile() && !tarEntry.isSymbolicLink() && !tarEntry.isLink() && !tarEntry.isCharacterDevice()
+                    && !tarEntry.isBlockDevice() && !tarEntry.isFIFO();
+        }
+        return !(entry instanceof ZipArchiveEntry && ((ZipArchiveEntry) entry).isUnixSymlink());
+    }
+
+    /*
+        A restored file is still a hard link into its snapshot, so it is replaced instead of truncated and written in
+        place, the same way the streamed branch's Files.copy with REPLACE_EXISTING does
+     */
+    private void write(Path target, byte[] data) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".seed");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void createDirectories(Path directory, Set<Path> createdDirectories) throws IOException {
+        if (createdDirectories.add(directory)) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    private void acquire(Semaphore buffered, int charge) throws InterruptedIOException {
+        try {
+            buffered.acquire(charge);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while seeding archive");
+        }
+    }
+
+    /*
+        Runs even when reading fails, so that no write is still landing in the root once the caller moves on
+     */
+    private void awaitWrites(AtomicInteger pending) throws InterruptedIOException {
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                try {
+                    pending.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while seeding archive");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.digest.Digest;
+import org.apache.sshd.common.util.NumberUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.threads.CloseableExecutorService;
+import org.apache.sshd.server.subsystem.sftp.SftpErrorStatusDataHandler;
+import org.apache.sshd.server.subsystem.sftp.SftpFileSystemAccessor;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystem;
+import org.apache.sshd.server.subsystem.sftp.UnsupportedAttributePolicy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+    Answers check-file and md5-hash requests for the whole of a file from the digests taken while it was uploaded, and
+    only reads the file for ranges, block hashes, other algorithms or files it has no current digest for
+ */
+public class ChecksumSftpSubsystem extends SftpSubsystem {
+    protected final SftpChecksums checksums;
+
+    public ChecksumSftpSubsystem(
+            CloseableExecutorService executorService, UnsupportedAttributePolicy policy, SftpFileSystemAccessor accessor,
+            SftpErrorStatusDataHandler errorStatusDataHandler, SftpChecksums checksums) {
+        super(executorService, policy, accessor, errorStatusDataHandler);
+        this.checksums = checksums;
+    }
+
+    @Override
+    protected void doCheckFileHash(
+            int id, Path file, NamedFactory<? extends Digest> factory, long startOffset, long length, int blockSize,
+            Buffer buffer) throws Exception {
+        byte[] digest = startOffset == 0 ? getStoredDigest(file, factory.getName(), length, blockSize) : null;
+        if (digest == null) {
+            super.doCheckFileHash(id, file, factory, startOffset, length, blockSize, buffer);
+            return;
+        }
+        buffer.putString(factory.getName());
+        buffer.putBytes(digest);
+    }
+
+    @Override
+    protected byte[] doMD5Hash(int id, Path path, long startOffset, long length, byte[] quickCheckHash) throws Exception {
+        byte[] digest = startOffset == 0 && NumberUtils.isEmpty(quickCheckHash) ? getStoredDigest(path, SftpChecksums.MD5, length, 0) : null;
+        return digest == null ? super.doMD5Hash(id, path, startOffset, length, quickCheckHash) : digest;
+    }
+
+    /*
+        A length of zero means the rest of the file and a block size of zero means a single block, so both cover the
+        whole file as do values at least as large as it. Empty files are left to the default handling
+     */
+    private byte[] getStoredDigest(Path file, String algorithm, long length, int blockSize) throws Exception {
+        long size = Files.size(file);
+        if (size == 0 || (length != 0 && length < size) || (blockSize != 0 && blockSize < size)) {
+            return null;
+        }
+        return checksums.getDigest(SftpSessions.getPort(getServerSession()), file, algorithm);
+    }
+}
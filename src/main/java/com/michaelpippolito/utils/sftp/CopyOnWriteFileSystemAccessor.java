@@ -0,0 +1,104 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.FileHandle;
+import org.apache.sshd.server.subsystem.sftp.SftpFileSystemAccessor;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystemProxy;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.Principal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+    Gives a hard-linked file its own copy before it is opened for writing or has its attributes set, so changes through
+    the SFTP Server never reach the other links (e.g. a snapshot). Files modified outside the SFTP Server are not
+    protected
+ */
+public class CopyOnWriteFileSystemAccessor implements SftpFileSystemAccessor {
+
+    @Override
+    public SeekableByteChannel openFile(
+            ServerSession session, SftpSubsystemProxy subsystem, FileHandle fileHandle, Path file, String handle,
+            Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+        if (options.contains(StandardOpenOption.WRITE) || options.contains(StandardOpenOption.APPEND)) {
+            unlink(file, options.contains(StandardOpenOption.TRUNCATE_EXISTING));
+        }
+        return SftpFileSystemAccessor.super.openFile(session, subsystem, fileHandle, file, handle, options, attrs);
+    }
+
+    /*
+        Sizes set through setstat are not seen here, the subsystem truncates by opening the file for writing
+     */
+    @Override
+    public void setFileAttribute(
+            ServerSession session, SftpSubsystemProxy subsystem, Path file, String view, String attribute, Object value,
+            LinkOption... options) throws IOException {
+        unlink(file, false);
+        SftpFileSystemAccessor.super.setFileAttribute(session, subsystem, file, view, attribute, value, options);
+    }
+
+    @Override
+    public void setFileOwner(
+            ServerSession session, SftpSubsystemProxy subsystem, Path file, Principal value, LinkOption... options)
+            throws IOException {
+        unlink(file, false);
+        SftpFileSystemAccessor.super.setFileOwner(session, subsystem, file, value, options);
+    }
+
+    @Override
+    public void setGroupOwner(
+            ServerSession session, SftpSubsystemProxy subsystem, Path file, Principal value, LinkOption... options)
+            throws IOException {
+        unlink(file, false);
+        SftpFileSystemAccessor.super.setGroupOwner(session, subsystem, file, value, options);
+    }
+
+    @Override
+    public void setFilePermissions(
+            ServerSession session, SftpSubsystemProxy subsystem, Path file, Set<PosixFilePermission> perms,
+            LinkOption... options) throws IOException {
+        unlink(file, false);
+        SftpFileSystemAccessor.super.setFilePermissions(session, subsystem, file, perms, options);
+    }
+
+    @Override
+    public void setFileAccessControl(
+            ServerSession session, SftpSubsystemProxy subsystem, Path file, List<AclEntry> acl, LinkOption... options)
+            throws IOException {
+        unlink(file, false);
+        SftpFileSystemAccessor.super.setFileAccessControl(session, subsystem, file, acl, options);
+    }
+
+    private void unlink(Path file, boolean truncate) throws IOException {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || getLinkCount(file) <= 1) {
+            return;
+        }
+
+        Path copy = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".cow");
+        try {
+            if (truncate) {
+                Files.createFile(copy);
+            } else {
+                Files.copy(file, copy, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+            }
+            Files.move(copy, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    private int getLinkCount(Path file) throws IOException {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.michaelpippolito.utils.sftp;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Directory listings of one SFTP Server together with the attributes of their entries, so listing a directory again
+    does not stat every entry again. Directories are evicted least recently used first once more than maxEntries
+    entries are cached across all of them. A listing is only trusted while the directory's modification time is
+    unchanged and it is younger than maxAgeMillis, the age limit being what bounds how stale the attributes of a file
+    changed in place outside SFTP can get
+ */
+public class DirectoryListingCache {
+    /*
+        Modification times are coarser than this on some file systems, so a directory modified this recently may still
+        change without its modification time moving and is not cached yet
+     */
+    private static final long RACY_MILLIS = 1000;
+
+    private final int maxEntries;
+    private final long maxAgeNanos;
+    private final LinkedHashMap<Path, CachedDirectory> directories = new LinkedHashMap<Path, CachedDirectory>(16, 0.75f, true);
+
+    private long cachedEntries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public DirectoryListingCache(int maxEntries, long maxAgeMillis) {
+        this.maxEntries = maxEntries;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /*
+        The cached entries of the directory, or null when it has to be listed again
+     */
+    public synchronized List<Path> getEntries(Path directory, FileTime modified) {
+        CachedDirectory cached = directories.get(directory);
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        if (!cached.modified.equals(modified) || System.nanoTime() - cached.loadedAt > maxAgeNanos) {
+            remove(directory);
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.entries;
+    }
+
+    public synchronized void putEntries(Path directory, FileTime modified, List<Path> entries) {
+        if (entries.size() > maxEntries || System.currentTimeMillis() - modified.toMillis() < RACY_MILLIS) {
+            return;
+        }
+        remove(directory);
+        directories.put(directory, new CachedDirectory(modified, entries));
+        cachedEntries += entries.size();
+        Iterator<CachedDirectory> eldest = directories.values().iterator();
+        while (cachedEntries > maxEntries && eldest.hasNext()) {
+            cachedEntries -= eldest.next().entries.size();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /*
+        Attributes are only cached for entries of a cached listing, so they are dropped together with it
+     */
+    public synchronized Map<String, ?> getAttributes(Path file, String key) {
+        CachedDirectory cached = file.getParent() == null ? null : directories.get(file.getParent());
+        if (cached == null || !cached.attributes.containsKey(file)) {
+            return null;
+        }
+        Map<String, ?> attributes = cached.attributes.get(file).get(key);
+        if (attributes == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return attributes;
+    }
+
+    public synchronized void putAttributes(Path file, String key, Map<String, ?> attributes) {
+        CachedDirectory cached = file.getParent() == null ? null : directories.get(file.getParent());
+        if (cached != null && cached.attributes.containsKey(file)) {
+            cached.attributes.get(file).put(key, Collections.unmodifiableMap(attributes));
+        }
+    }
+
+    /*
+        The file's contents or attributes changed. Its cached attributes are dropped, along with its directory's
+        listing if the file is not in it yet
+     */
+    public synchronized void fileChanged(Path file) {
+        CachedDirectory cached = file.getParent() == null ? null : directories.get(file.getParent());
+        if (cached == null) {
+            return;
+        }
+        Map<String, Map<String, ?>> attributes = cached.attributes.get(file);
+        if (attributes == null) {
+            remove(file.getParent());
+        } else {
+            attributes.clear();
+        }
+    }
+
+    /*
+        The path was created, removed or renamed. Its directory's listing is dropped, and so is every cached listing
+        at or below the path in case it is a directory
+     */
+    public synchronized void pathChanged(Path path) {
+        if (path.getParent() != null) {
+            remove(path.getParent());
+        }
+        Iterator<Map.Entry<Path, CachedDirectory>> cached = directories.entrySet().iterator();
+        while (cached.hasNext()) {
+            Map.Entry<Path, CachedDirectory> directory = cached.next();
+            if (directory.getKey().startsWith(path)) {
+                cachedEntries -= directory.getValue().entries.size();
+                cached.remove();
+            }
+        }
+    }
+
+    public synchronized ListingCacheMetrics summarize() {
+        long lookups = hits + misses;
+        return new ListingCacheMetrics(hits, misses, lookups == 0 ? 0 : (double) hits / lookups, evictions, directories.size(), cachedEntries);
+    }
+
+    private void remove(Path directory) {
+        CachedDirectory removed = directories.remove(directory);
+        if (removed != null) {
+            cachedEntries -= removed.entries.size();
+        }
+    }
+
+    private static class CachedDirectory {
+        private final FileTime modified;
+        private final long loadedAt = System.nanoTime();
+        private final List<Path> entries;
+        private final Map<Path, Map<String, Map<String, ?>>> attributes;
+
+        private CachedDirectory(FileTime modified, List<Path> entries) {
+            this.modified = modified;
+            this.entries = Collections.unmodifiableList(entries);
+            this.attributes = new HashMap<Path, Map<String, Map<String, ?>>>(entries.size() * 2);
+            for (Path entry : entries) {
+                attributes.put(entry, new HashMap<String, Map<String, ?>>(4));
+            }
+        }
+    }
+}
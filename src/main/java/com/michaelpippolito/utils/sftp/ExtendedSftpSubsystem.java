@@ -0,0 +1,259 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.client.subsystem.sftp.extensions.openssh.OpenSSHStatExtensionInfo;
+import org.apache.sshd.common.subsystem.sftp.SftpConstants;
+import org.apache.sshd.common.subsystem.sftp.extensions.openssh.AbstractOpenSSHExtensionParser.OpenSSHExtension;
+import org.apache.sshd.common.subsystem.sftp.extensions.openssh.FstatVfsExtensionParser;
+import org.apache.sshd.common.subsystem.sftp.extensions.openssh.StatVfsExtensionParser;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.threads.CloseableExecutorService;
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.channel.ChannelSession;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.FileHandle;
+import org.apache.sshd.server.subsystem.sftp.Handle;
+import org.apache.sshd.server.subsystem.sftp.SftpErrorStatusDataHandler;
+import org.apache.sshd.server.subsystem.sftp.SftpEventListener;
+import org.apache.sshd.server.subsystem.sftp.SftpFileSystemAccessor;
+import org.apache.sshd.server.subsystem.sftp.UnsupportedAttributePolicy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.CopyOption;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+/*
+    Serves the copy-file and copy-data extensions with FileChannel.transferTo, which lets the kernel move the bytes
+    between the two files instead of pulling them through the heap a few kilobytes at a time, and adds the OpenSSH
+    statvfs and fstatvfs extensions alongside space-available. Copies the server writes itself raise no write events, so
+    they are reported to the SftpCopyListener event listeners instead
+ */
+public class ExtendedSftpSubsystem extends ChecksumSftpSubsystem {
+    private static final long STATVFS_BLOCK_SIZE = 4096;
+    private static final long STATVFS_NAME_MAX = 255;
+
+    private final Collection<SftpCopyListener> copyListeners = new CopyOnWriteArrayList<SftpCopyListener>();
+
+    public ExtendedSftpSubsystem(
+            CloseableExecutorService executorService, UnsupportedAttributePolicy policy, SftpFileSystemAccessor accessor,
+            SftpErrorStatusDataHandler errorStatusDataHandler, SftpChecksums checksums) {
+        super(executorService, policy, accessor, errorStatusDataHandler, checksums);
+    }
+
+    /*
+        A shared subsystem executor refuses a channel once every thread is busy. Apache SSHD reports that as a failed
+        start, which would close the whole session, so the subsystem exits instead. That closes only the refused
+        channel, and right away since the channel otherwise waits for an exit that never comes
+     */
+    @Override
+    public void start(ChannelSession channel, Environment env) throws IOException {
+        try {
+            super.start(channel, env);
+        } catch (IOException e) {
+            if (!(e.getCause() instanceof RejectedExecutionException) || callback == null) {
+                throw e;
+            }
+            callback.onExit(-1, "Too many SFTP channels open");
+        }
+    }
+
+    @Override
+    public boolean addSftpEventListener(SftpEventListener listener) {
+        if (listener instanceof SftpCopyListener) {
+            copyListeners.add((SftpCopyListener) listener);
+        }
+        return super.addSftpEventListener(listener);
+    }
+
+    @Override
+    public boolean removeSftpEventListener(SftpEventListener listener) {
+        copyListeners.remove(listener);
+        return super.removeSftpEventListener(listener);
+    }
+
+    @Override
+    protected void doCopyFile(int id, String srcFile, String dstFile, Collection<CopyOption> opts) throws IOException {
+        Path src = resolveFile(srcFile);
+        Path dst = resolveFile(dstFile);
+        copying(src, dst);
+        long bytes = 0;
+        Throwable thrown = null;
+        try {
+            if (!Files.isRegularFile(src) || (Files.exists(dst) && Files.isSameFile(src, dst))) {
+                super.doCopyFile(id, srcFile, dstFile, opts);
+                bytes = Files.isRegularFile(dst) ? Files.size(dst) : 0;
+                return;
+            }
+
+            /*
+                Replacing removes the old file first like Files.copy does, so a hard-linked target (e.g. a snapshot)
+                keeps its content
+             */
+            if (opts.contains(StandardCopyOption.REPLACE_EXISTING)) {
+                Files.deleteIfExists(dst);
+            }
+            try (FileChannel source = FileChannel.open(src, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(dst, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+                bytes = source.size();
+                transfer(source, 0, bytes, target);
+            }
+        } catch (IOException | RuntimeException e) {
+            thrown = e;
+            throw e;
+        } finally {
+            copied(src, dst, null, bytes, thrown);
+        }
+    }
+
+    /*
+        Validates the request the same way the default implementation does, which falls back to copying through a
+        buffer when either handle is not backed by a FileChannel
+     */
+    @Override
+    protected void doCopyData(int id, String readHandle, long readOffset, long readLength, String writeHandle, long writeOffset) throws IOException {
+        FileHandle source = validateHandle(readHandle, handles.get(readHandle), FileHandle.class);
+        FileHandle target = validateHandle(writeHandle, handles.get(writeHandle), FileHandle.class);
+        copying(source.getFile(), target.getFile());
+        long bytes = 0;
+        Throwable thrown = null;
+        try {
+            bytes = copyData(id, readHandle, source, readOffset, readLength, writeHandle, target, writeOffset);
+        } catch (IOException | RuntimeException e) {
+            thrown = e;
+            throw e;
+        } finally {
+            copied(source.getFile(), target.getFile(), target, bytes, thrown);
+        }
+    }
+
+    private long copyData(int id, String readHandle, FileHandle source, long readOffset, long readLength, String writeHandle, FileHandle target, long writeOffset) throws IOException {
+        FileChannel sourceChannel = getFileChannel(source);
+        FileChannel targetChannel = getFileChannel(target);
+        if (sourceChannel == null || targetChannel == null) {
+            long size = Files.size(source.getFile());
+            super.doCopyData(id, readHandle, readOffset, readLength, writeHandle, writeOffset);
+            return readLength == 0L || readOffset + readLength > size ? size - readOffset : readLength;
+        }
+
+        if ((source.getAccessMask() & SftpConstants.ACE4_READ_DATA) != SftpConstants.ACE4_READ_DATA) {
+            throw new AccessDeniedException(source.getFile().toString(), source.getFile().toString(), "Source file not opened for read");
+        }
+        ValidateUtils.checkTrue(readLength >= 0L, "Invalid read length: %d", readLength);
+        ValidateUtils.checkTrue(readOffset >= 0L, "Invalid read offset: %d", readOffset);
+        long size = sourceChannel.size();
+        long length = readLength == 0L || readOffset + readLength > size ? size - readOffset : readLength;
+        ValidateUtils.checkTrue(length > 0L, "Non-positive effective copy data length: %d", length);
+        if ((target.getAccessMask() & SftpConstants.ACE4_WRITE_DATA) != SftpConstants.ACE4_WRITE_DATA) {
+            throw new AccessDeniedException(target.getFile().toString(), target.getFile().toString(), "Target file not opened for write");
+        }
+        ValidateUtils.checkTrue(writeOffset >= 0L, "Invalid write offset: %d", writeOffset);
+        if ((readHandle.equals(writeHandle) || source.getFile().equals(target.getFile()))
+                && readOffset < writeOffset + length && writeOffset < readOffset + length) {
+            throw new IllegalArgumentException("Write range [" + writeOffset + "-" + (writeOffset + length) + "] overlaps with read range [" + readOffset + "-" + (readOffset + length) + "]");
+        }
+
+        targetChannel.position(writeOffset);
+        transfer(sourceChannel, readOffset, length, targetChannel);
+        return length;
+    }
+
+    private void copying(Path source, Path target) {
+        for (SftpCopyListener listener : copyListeners) {
+            listener.copying(getServerSession(), source, target);
+        }
+    }
+
+    private void copied(Path source, Path target, FileHandle targetHandle, long bytes, Throwable thrown) {
+        for (SftpCopyListener listener : copyListeners) {
+            listener.copied(getServerSession(), source, target, targetHandle, bytes, thrown);
+        }
+    }
+
+    @Override
+    protected void executeExtendedCommand(Buffer buffer, int id, String extension) throws IOException {
+        if (!StatVfsExtensionParser.NAME.equals(extension) && !FstatVfsExtensionParser.NAME.equals(extension)) {
+            super.executeExtendedCommand(buffer, id, extension);
+            return;
+        }
+
+        String target = buffer.getString();
+        OpenSSHStatExtensionInfo info;
+        try {
+            Path path = StatVfsExtensionParser.NAME.equals(extension)
+                    ? resolveFile(target)
+                    : validateHandle(target, handles.get(target), Handle.class).getFile();
+            info = statVfs(Files.getFileStore(path));
+        } catch (IOException | RuntimeException e) {
+            sendStatus(prepareReply(buffer), id, e, SftpConstants.SSH_FXP_EXTENDED, extension, target);
+            return;
+        }
+
+        buffer = prepareReply(buffer);
+        buffer.putByte((byte) SftpConstants.SSH_FXP_EXTENDED_REPLY);
+        buffer.putInt(id);
+        OpenSSHStatExtensionInfo.encode(buffer, info);
+        send(buffer);
+    }
+
+    @Override
+    protected List<OpenSSHExtension> resolveOpenSSHExtensions(ServerSession session) {
+        List<OpenSSHExtension> extensions = new ArrayList<OpenSSHExtension>(super.resolveOpenSSHExtensions(session));
+        extensions.add(new OpenSSHExtension(StatVfsExtensionParser.NAME, "2"));
+        extensions.add(new OpenSSHExtension(FstatVfsExtensionParser.NAME, "2"));
+        return extensions;
+    }
+
+    /*
+        transferTo may move fewer bytes than asked for, e.g. at most 2GB per call on Linux, so it is repeated until the
+        range is done. The target is written at its current position
+     */
+    private void transfer(FileChannel source, long position, long length, FileChannel target) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long transferred = source.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                throw new EOFException("Premature EOF while still remaining " + remaining + " bytes");
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    private FileChannel getFileChannel(FileHandle fileHandle) {
+        Channel channel = fileHandle.getFileChannel();
+        if (channel instanceof MappedFileChannel) {
+            channel = ((MappedFileChannel) channel).getFileChannel();
+        }
+        return channel instanceof FileChannel ? (FileChannel) channel : null;
+    }
+
+    /*
+        Java 8 does not expose the block size or inode counts of a file store, so sizes are reported in 4KB blocks and
+        the file counts are left at zero, which clients read as unknown
+     */
+    private OpenSSHStatExtensionInfo statVfs(FileStore store) throws IOException {
+        OpenSSHStatExtensionInfo info = new OpenSSHStatExtensionInfo();
+        info.f_bsize = STATVFS_BLOCK_SIZE;
+        info.f_frsize = STATVFS_BLOCK_SIZE;
+        info.f_blocks = store.getTotalSpace() / STATVFS_BLOCK_SIZE;
+        info.f_bfree = store.getUnallocatedSpace() / STATVFS_BLOCK_SIZE;
+        info.f_bavail = store.getUsableSpace() / STATVFS_BLOCK_SIZE;
+        info.f_fsid = store.name().hashCode() & 0xFFFFFFFFL;
+        info.f_flag = store.isReadOnly() ? OpenSSHStatExtensionInfo.SSH_FXE_STATVFS_ST_RDONLY : 0;
+        info.f_namemax = STATVFS_NAME_MAX;
+        return info;
+    }
+}
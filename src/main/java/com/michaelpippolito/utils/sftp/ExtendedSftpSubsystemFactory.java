@@ -0,0 +1,23 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.server.channel.ChannelSession;
+import org.apache.sshd.server.command.Command;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystemFactory;
+
+public class ExtendedSftpSubsystemFactory extends SftpSubsystemFactory {
+    private final SftpChecksums checksums;
+
+    public ExtendedSftpSubsystemFactory(SftpChecksums checksums) {
+        this.checksums = checksums;
+    }
+
+    @Override
+    public Command createSubsystem(ChannelSession channel) {
+        ExtendedSftpSubsystem subsystem = new ExtendedSftpSubsystem(
+                resolveExecutorService(), getUnsupportedAttributePolicy(), getFileSystemAccessor(), getErrorStatusDataHandler(), checksums
+        );
+        GenericUtils.forEach(getRegisteredListeners(), subsystem::addSftpEventListener);
+        return subsystem;
+    }
+}
@@ -0,0 +1,25 @@
+package com.michaelpippolito.utils.sftp;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class FileChecksum {
+    @Getter @Setter
+    private String path;
+
+    @Getter @Setter
+    private long size;
+
+    @Getter @Setter
+    private long lastModified;
+
+    @Getter @Setter
+    private String sha256;
+
+    @Getter @Setter
+    private String md5;
+}
@@ -0,0 +1,71 @@
+package com.michaelpippolito.utils.sftp;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    RAM-backed file systems for SFTP Servers started in memory mode, one per port. Wiping a server swaps in a fresh
+    file system and drops the old one, so a reset costs the same no matter how many files were written
+ */
+@Component
+@Slf4j
+public class InMemoryFileSystemManager {
+    private static final String ROOT_DIR = "/sftp";
+    private static final String SNAPSHOT_DIR = "/snapshots";
+
+    @Autowired
+    private SftpConfig config;
+
+    private Map<Integer, FileSystem> fileSystems = new ConcurrentHashMap<Integer, FileSystem>();
+
+    public boolean isInMemory(int port) {
+        return fileSystems.containsKey(port);
+    }
+
+    public Path open(int port) {
+        FileSystem fileSystem = Jimfs.newFileSystem(Configuration.unix().toBuilder()
+                .setAttributeViews("basic", "owner", "posix", "unix")
+                .setMaxSize(config.getInMemoryMaxBytes())
+                .build());
+        close(fileSystems.put(port, fileSystem));
+        try {
+            return Files.createDirectories(fileSystem.getPath(ROOT_DIR));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+        Kept outside the served root so clients cannot see or modify snapshots, but on the same file system so they
+        can be hard-linked
+     */
+    public Path getSnapshotDir(int port) {
+        return fileSystems.get(port).getPath(SNAPSHOT_DIR);
+    }
+
+    public void close(int port) {
+        close(fileSystems.remove(port));
+    }
+
+    private void close(FileSystem fileSystem) {
+        if (fileSystem != null) {
+            try {
+                fileSystem.close();
+            } catch (IOException e) {
+                log.error("Failed closing in-memory file system -- " + ExceptionUtils.getStackTrace(e));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.DirectoryHandle;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystemProxy;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Serves directory listings and the attributes of their entries from the port's DirectoryListingCache when it has
+    one. A cached listing costs a single stat of the directory to check its modification time
+ */
+public class ListingCacheFileSystemAccessor extends MappedReadFileSystemAccessor {
+    private final SftpListingCaches listingCaches;
+
+    public ListingCacheFileSystemAccessor(long mappedReadThresholdBytes, long mappedReadWindowBytes, SftpListingCaches listingCaches) {
+        super(mappedReadThresholdBytes, mappedReadWindowBytes);
+        this.listingCaches = listingCaches;
+    }
+
+    @Override
+    public DirectoryStream<Path> openDirectory(
+            ServerSession session, SftpSubsystemProxy subsystem, DirectoryHandle dirHandle, Path dir, String handle) throws IOException {
+        DirectoryListingCache cache = listingCaches.get(SftpSessions.getPort(session));
+        if (cache == null) {
+            return super.openDirectory(session, subsystem, dirHandle, dir, handle);
+        }
+
+        FileTime modified = Files.getLastModifiedTime(dir);
+        List<Path> entries = cache.getEntries(dir, modified);
+        if (entries == null) {
+            entries = new ArrayList<Path>();
+            try (DirectoryStream<Path> stream = super.openDirectory(session, subsystem, dirHandle, dir, handle)) {
+                for (Path entry : stream) {
+                    entries.add(entry);
+                }
+            }
+            cache.putEntries(dir, modified, entries);
+        }
+        return new CachedDirectoryStream(entries);
+    }
+
+    @Override
+    public Map<String, ?> readFileAttributes(
+            ServerSession session, SftpSubsystemProxy subsystem, Path file, String view, LinkOption... options) throws IOException {
+        DirectoryListingCache cache = listingCaches.get(SftpSessions.getPort(session));
+        if (cache == null) {
+            return super.readFileAttributes(session, subsystem, file, view, options);
+        }
+
+        String key = options.length == 0 ? view : view + Arrays.toString(options);
+        Map<String, ?> attributes = cache.getAttributes(file, key);
+        if (attributes == null) {
+            attributes = super.readFileAttributes(session, subsystem, file, view, options);
+            cache.putAttributes(file, key, attributes);
+        }
+        return attributes;
+    }
+
+    private static class CachedDirectoryStream implements DirectoryStream<Path> {
+        private final List<Path> entries;
+
+        private CachedDirectoryStream(List<Path> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Iterator<Path> iterator() {
+            return entries.iterator();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.michaelpippolito.utils.sftp;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+public class ListingCacheMetrics {
+    /*
+        Directory listings and entry attributes served from the cache
+     */
+    @Getter @Setter
+    private long hits;
+
+    @Getter @Setter
+    private long misses;
+
+    @Getter @Setter
+    private double hitRatio;
+
+    @Getter @Setter
+    private long evictions;
+
+    @Getter @Setter
+    private int cachedDirectories;
+
+    @Getter @Setter
+    private long cachedEntries;
+}
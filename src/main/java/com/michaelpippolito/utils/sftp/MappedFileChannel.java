@@ -0,0 +1,163 @@
+package com.michaelpippolito.utils.sftp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.function.Consumer;
+
+/*
+    Read-only channel that serves reads from a memory-mapped window of the file instead of read system calls. Reading
+    a FileChannel into a heap buffer goes through a temporary direct buffer first, whereas a mapped window is copied
+    straight from the page cache into the SFTP response. Files larger than the window are mapped one window at a time,
+    so the mapping never exceeds the window size no matter how large the file is. The size is fixed when the channel
+    is opened, so bytes appended afterwards are not visible through it.
+
+    A window is unmapped as soon as the channel moves past it or is closed rather than whenever it is garbage collected,
+    since a file with a live mapping cannot be deleted, truncated or replaced on Windows. The window must not be read
+    after that, which holds because the SFTP subsystem reads and closes a handle from one thread
+ */
+@Slf4j
+public class MappedFileChannel implements SeekableByteChannel {
+    private static final Consumer<MappedByteBuffer> UNMAPPER = createUnmapper();
+
+    private final FileChannel fileChannel;
+    private final long windowSize;
+    private final long size;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    public MappedFileChannel(FileChannel fileChannel, long windowSize) throws IOException {
+        this.fileChannel = fileChannel;
+        this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+        this.size = fileChannel.size();
+    }
+
+    public FileChannel getFileChannel() {
+        return fileChannel;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+
+        int read = 0;
+        while (dst.hasRemaining() && position < size) {
+            if (window == null || position < windowStart || position >= windowStart + window.capacity()) {
+                unmapWindow();
+                windowStart = position - position % windowSize;
+                window = fileChannel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+            }
+            int offset = (int) (position - windowStart);
+            int length = Math.min(dst.remaining(), window.capacity() - offset);
+            window.limit(offset + length).position(offset);
+            dst.put(window);
+            window.clear();
+            position += length;
+            read += length;
+        }
+        return read;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position " + newPosition);
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return fileChannel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            unmapWindow();
+        } finally {
+            fileChannel.close();
+        }
+    }
+
+    private void unmapWindow() {
+        MappedByteBuffer unmapped = window;
+        window = null;
+        if (unmapped != null && UNMAPPER != null) {
+            UNMAPPER.accept(unmapped);
+        }
+    }
+
+    /*
+        There is no supported way to unmap a buffer, so this reaches for Unsafe.invokeCleaner on Java 9 and later and for
+        the buffer's own cleaner on Java 8. Without either, windows are left to the garbage collector
+     */
+    private static Consumer<MappedByteBuffer> createUnmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invoke(invokeCleaner, unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            /*
+                Not Java 9 or later, fall through to the Java 8 cleaner
+             */
+        }
+        try {
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object bufferCleaner = invoke(cleaner, buffer);
+                if (bufferCleaner != null) {
+                    invoke(clean, bufferCleaner);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Mapped windows cannot be unmapped eagerly on this JVM and are released once garbage collected -- " + ExceptionUtils.getStackTrace(e));
+            return null;
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed unmapping window", e);
+        }
+    }
+}
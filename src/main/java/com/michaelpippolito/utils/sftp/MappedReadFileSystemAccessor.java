@@ -0,0 +1,72 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.FileHandle;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystemProxy;
+
+import java.io.IOException;
+import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.util.Set;
+
+/*
+    Serves read-only opens of files at or above the threshold through a MappedFileChannel. Only files on the default
+    file system are mapped, since in-memory file systems already live on the heap and do not support mapping
+ */
+public class MappedReadFileSystemAccessor extends CopyOnWriteFileSystemAccessor {
+    private final long thresholdBytes;
+    private final long windowBytes;
+
+    public MappedReadFileSystemAccessor(long thresholdBytes, long windowBytes) {
+        this.thresholdBytes = thresholdBytes;
+        this.windowBytes = windowBytes;
+    }
+
+    @Override
+    public SeekableByteChannel openFile(
+            ServerSession session, SftpSubsystemProxy subsystem, FileHandle fileHandle, Path file, String handle,
+            Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+        if (thresholdBytes <= 0
+                || options.contains(StandardOpenOption.WRITE)
+                || options.contains(StandardOpenOption.APPEND)
+                || file.getFileSystem() != FileSystems.getDefault()) {
+            return super.openFile(session, subsystem, fileHandle, file, handle, options, attrs);
+        }
+
+        FileChannel fileChannel = FileChannel.open(file, options, attrs);
+        try {
+            if (fileChannel.size() < thresholdBytes) {
+                return fileChannel;
+            }
+            return new MappedFileChannel(fileChannel, windowBytes);
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public FileLock tryLock(
+            ServerSession session, SftpSubsystemProxy subsystem, FileHandle fileHandle, Path file, String handle,
+            Channel channel, long position, long count, boolean shared) throws IOException {
+        return super.tryLock(session, subsystem, fileHandle, file, handle, unwrap(channel), position, count, shared);
+    }
+
+    @Override
+    public void syncFileData(
+            ServerSession session, SftpSubsystemProxy subsystem, FileHandle fileHandle, Path file, String handle,
+            Channel channel) throws IOException {
+        super.syncFileData(session, subsystem, fileHandle, file, handle, unwrap(channel));
+    }
+
+    private Channel unwrap(Channel channel) {
+        return channel instanceof MappedFileChannel ? ((MappedFileChannel) channel).getFileChannel() : channel;
+    }
+}
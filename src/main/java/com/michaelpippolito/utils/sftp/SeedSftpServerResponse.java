@@ -0,0 +1,43 @@
+package com.michaelpippolito.utils.sftp;
+
+import com.michaelpippolito.utils.server.ServerCommandStatus;
+import com.michaelpippolito.utils.server.ServerStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeedSftpServerResponse {
+    @Getter @Setter
+    private ServerCommandStatus commandStatus;
+
+    @Getter @Setter
+    private ServerStatus serverStatus;
+
+    @Getter @Setter
+    private String message;
+
+    @Getter @Setter
+    private long files;
+
+    @Getter @Setter
+    private long directories;
+
+    /*
+        Symbolic links, devices and other entries that are neither files nor directories
+     */
+    @Getter @Setter
+    private long skippedEntries;
+
+    @Getter @Setter
+    private long bytes;
+
+    @Getter @Setter
+    private long elapsedMillis;
+
+    public SeedSftpServerResponse(ServerCommandStatus commandStatus, ServerStatus serverStatus, String message) {
+        this(commandStatus, serverStatus, message, 0, 0, 0, 0, 0);
+    }
+}
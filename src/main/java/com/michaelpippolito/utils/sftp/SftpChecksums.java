@@ -0,0 +1,283 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.common.AttributeRepository.AttributeKey;
+import org.apache.sshd.common.util.buffer.BufferUtils;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.AbstractSftpEventListenerAdapter;
+import org.apache.sshd.server.subsystem.sftp.FileHandle;
+import org.apache.sshd.server.subsystem.sftp.Handle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    SHA-256 and MD5 digests of files uploaded through the SFTP Server, computed from the write requests as they arrive
+    so that verifying an upload never has to read the file back. Only uploads written front to back in one pass are
+    digested, a write at any other offset gives up on the handle. Each digest is stored with the size and modification
+    time of the file when its handle closed and is only served while both still match, so a file changed by another
+    server or outside SFTP is simply no longer known rather than reported with a stale digest
+ */
+@Component
+public class SftpChecksums extends AbstractSftpEventListenerAdapter implements SftpCopyListener {
+    public static final String SHA256 = "sha256";
+    public static final String MD5 = "md5";
+
+    private static final AttributeKey<Upload> UPLOAD = new AttributeKey<Upload>();
+
+    @Autowired
+    private SftpConfig config;
+
+    private Map<Integer, Map<String, StoredChecksum>> ports = new ConcurrentHashMap<Integer, Map<String, StoredChecksum>>();
+
+    /*
+        The checksum of the file at path, as the SFTP client sees it, or null when it is unknown or out of date
+     */
+    public FileChecksum get(int port, String path) {
+        StoredChecksum stored = lookup(port, path.startsWith("/") ? path : "/" + path);
+        return stored == null ? null : stored.checksum;
+    }
+
+    /*
+        The raw digest of the whole file for check-file and md5-hash, or null when it has to be computed from the file
+     */
+    public byte[] getDigest(int port, Path file, String algorithm) {
+        StoredChecksum stored = lookup(port, key(file));
+        if (stored == null) {
+            return null;
+        }
+        if (SHA256.equalsIgnoreCase(algorithm)) {
+            return stored.sha256.clone();
+        } else if (MD5.equalsIgnoreCase(algorithm)) {
+            return stored.md5.clone();
+        }
+        return null;
+    }
+
+    public void reset(int port) {
+        ports.remove(port);
+    }
+
+    public void discard(int port, Path file) {
+        Map<String, StoredChecksum> entries = ports.get(port);
+        if (entries != null) {
+            entries.remove(key(file));
+        }
+    }
+
+    public void discard(FileHandle fileHandle) {
+        Upload upload = fileHandle.getAttribute(UPLOAD);
+        if (upload != null) {
+            upload.sequential = false;
+        }
+    }
+
+    @Override
+    public void copied(ServerSession session, Path source, Path target, FileHandle targetHandle, long bytes, Throwable thrown) {
+        discard(SftpSessions.getPort(session), target);
+        if (targetHandle != null) {
+            discard(targetHandle);
+        }
+    }
+
+    @Override
+    public void open(ServerSession session, String remoteHandle, Handle localHandle) {
+        if (!(localHandle instanceof FileHandle) || !isWrite((FileHandle) localHandle)) {
+            return;
+        }
+        discard(SftpSessions.getPort(session), localHandle.getFile());
+        if (config.getChecksumMaxFiles() > 0 && !((FileHandle) localHandle).getOpenOptions().contains(StandardOpenOption.APPEND)) {
+            localHandle.setAttribute(UPLOAD, new Upload());
+        }
+    }
+
+    @Override
+    public void written(ServerSession session, String remoteHandle, FileHandle localHandle, long offset, byte[] data, int dataOffset, int dataLen, Throwable thrown) {
+        Upload upload = localHandle.getAttribute(UPLOAD);
+        if (upload == null || !upload.sequential) {
+            return;
+        }
+        if (thrown != null || offset != upload.nextOffset) {
+            upload.sequential = false;
+            return;
+        }
+        upload.sha256.update(data, dataOffset, dataLen);
+        upload.md5.update(data, dataOffset, dataLen);
+        upload.nextOffset += dataLen;
+    }
+
+    @Override
+    public void closed(ServerSession session, String remoteHandle, Handle localHandle, Throwable thrown) {
+        Upload upload = localHandle.removeAttribute(UPLOAD);
+        if (upload != null && upload.sequential && thrown == null) {
+            store(session, localHandle.getFile(), upload);
+        }
+    }
+
+    /*
+        A handle left open when the channel went away may not have received every write, so it is never stored
+     */
+    @Override
+    public void exiting(ServerSession session, Handle localHandle) {
+        localHandle.removeAttribute(UPLOAD);
+    }
+
+    /*
+        Entries that are out of date are dropped here, so whatever is left afterwards was current before the change
+     */
+    @Override
+    public void modifyingAttributes(ServerSession session, Path path, Map<String, ?> attrs) {
+        lookup(SftpSessions.getPort(session), key(path));
+    }
+
+    /*
+        Clients that preserve timestamps set the modification time right after the upload, which leaves the content
+        alone, so the entry is moved to the new time instead of being lost. Anything that may change the size drops it
+     */
+    @Override
+    public void modifiedAttributes(ServerSession session, Path path, Map<String, ?> attrs, Throwable thrown) {
+        Map<String, StoredChecksum> entries = ports.get(SftpSessions.getPort(session));
+        if (entries == null) {
+            return;
+        }
+        String key = key(path);
+        StoredChecksum stored = entries.get(key);
+        if (stored == null) {
+            return;
+        }
+        if (thrown == null && !attrs.containsKey("size")) {
+            try {
+                long lastModified = Files.getLastModifiedTime(path).toMillis();
+                FileChecksum checksum = stored.checksum;
+                entries.replace(key, stored, new StoredChecksum(path, new FileChecksum(checksum.getPath(), checksum.getSize(), lastModified, checksum.getSha256(), checksum.getMd5()), stored.sha256, stored.md5));
+                return;
+            } catch (IOException e) {
+                /*
+                    Fall through and forget the file
+                 */
+            }
+        }
+        entries.remove(key, stored);
+    }
+
+    @Override
+    public void moved(ServerSession session, Path srcPath, Path dstPath, Collection<CopyOption> opts, Throwable thrown) {
+        Map<String, StoredChecksum> entries = ports.get(SftpSessions.getPort(session));
+        if (entries == null || thrown != null) {
+            return;
+        }
+        String dstKey = key(dstPath);
+        entries.remove(dstKey);
+        StoredChecksum stored = entries.remove(key(srcPath));
+        if (stored != null) {
+            FileChecksum checksum = stored.checksum;
+            entries.put(dstKey, new StoredChecksum(dstPath, new FileChecksum(dstKey, checksum.getSize(), checksum.getLastModified(), checksum.getSha256(), checksum.getMd5()), stored.sha256, stored.md5));
+        }
+    }
+
+    @Override
+    public void removed(ServerSession session, Path path, boolean isDirectory, Throwable thrown) {
+        discard(SftpSessions.getPort(session), path);
+    }
+
+    private void store(ServerSession session, Path file, Upload upload) {
+        long size;
+        long lastModified;
+        try {
+            size = Files.size(file);
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return;
+        }
+        /*
+            An upload that only overwrote the start of a longer file did not see all of its bytes
+         */
+        if (size != upload.nextOffset) {
+            return;
+        }
+        byte[] sha256 = upload.sha256.digest();
+        byte[] md5 = upload.md5.digest();
+        String key = key(file);
+        int maxFiles = config.getChecksumMaxFiles();
+        ports.computeIfAbsent(SftpSessions.getPort(session), port -> Collections.synchronizedMap(new LinkedHashMap<String, StoredChecksum>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredChecksum> eldest) {
+                return size() > maxFiles;
+            }
+        })).put(key, new StoredChecksum(
+                file,
+                new FileChecksum(key, size, lastModified, BufferUtils.toHex(BufferUtils.EMPTY_HEX_SEPARATOR, sha256), BufferUtils.toHex(BufferUtils.EMPTY_HEX_SEPARATOR, md5)),
+                sha256,
+                md5
+        ));
+    }
+
+    private StoredChecksum lookup(int port, String key) {
+        Map<String, StoredChecksum> entries = ports.get(port);
+        StoredChecksum stored = entries == null ? null : entries.get(key);
+        if (stored == null) {
+            return null;
+        }
+        try {
+            if (Files.size(stored.file) == stored.checksum.getSize()
+                    && Files.getLastModifiedTime(stored.file).toMillis() == stored.checksum.getLastModified()) {
+                return stored;
+            }
+        } catch (IOException e) {
+            /*
+                The file is gone or unreadable, either way the entry no longer describes it
+             */
+        }
+        entries.remove(key, stored);
+        return null;
+    }
+
+    private boolean isWrite(FileHandle fileHandle) {
+        return fileHandle.getOpenOptions().contains(StandardOpenOption.WRITE) || fileHandle.getOpenOptions().contains(StandardOpenOption.APPEND);
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static class Upload {
+        private final MessageDigest sha256;
+        private final MessageDigest md5;
+        private long nextOffset;
+        private boolean sequential = true;
+
+        private Upload() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class StoredChecksum {
+        private final Path file;
+        private final FileChecksum checksum;
+        private final byte[] sha256;
+        private final byte[] md5;
+
+        private StoredChecksum(Path file, FileChecksum checksum, byte[] sha256, byte[] md5) {
+            this.file = file;
+            this.checksum = checksum;
+            this.sha256 = sha256;
+            this.md5 = md5;
+        }
+    }
+}
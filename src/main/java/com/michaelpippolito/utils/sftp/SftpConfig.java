@@ -1,10 +1,13 @@
 package com.michaelpippolito.utils.sftp;
 
+import com.michaelpippolito.utils.sftp.shaping.ShapingProfile;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +20,124 @@ public class SftpConfig {
     @Getter @Setter
     private String localDir;
 
+    @Getter @Setter
+    private String snapshotDir;
+
+    @Getter @Setter
+    private boolean inMemory;
+
+    @Getter @Setter
+    private long inMemoryMaxBytes = 1024L * 1024 * 1024;
+
     @Getter @Setter
     private Map<Integer, List<String>> defaultServers;
+
+    @Getter @Setter
+    private boolean parallelStartup;
+
+    @Getter @Setter
+    private int lifecycleThreads = Runtime.getRuntime().availableProcessors();
+
+    @Getter @Setter
+    private long jobRetentionMillis = 600000;
+
+    @Getter @Setter
+    private long maxJobWaitMillis = 60000;
+
+    @Getter @Setter
+    private int standbyServers;
+
+    @Getter @Setter
+    private int ioThreads = Runtime.getRuntime().availableProcessors() + 1;
+
+    @Getter @Setter
+    private String hostKeyDir;
+
+    @Getter @Setter
+    private List<String> hostKeyAlgorithms = Arrays.asList("EC", "RSA");
+
+    @Getter @Setter
+    private boolean preGenerateHostKeys;
+
+    @Getter @Setter
+    private SftpTuning tuning = new SftpTuning();
+
+    /*
+        Downloads of files at least this large are served from memory-mapped windows of mappedReadWindowBytes, 0 or a
+        negative threshold turns mapped reads off
+     */
+    @Getter @Setter
+    private long mappedReadThresholdBytes = -1;
+
+    @Getter @Setter
+    private long mappedReadWindowBytes = 64L * 1024 * 1024;
+
+    /*
+        Caches directory listings and the attributes of their entries, a start request can turn it on or off per server
+     */
+    @Getter @Setter
+    private boolean listingCache;
+
+    /*
+        Entries cached per server across all of its directories, least recently listed directories are evicted first
+     */
+    @Getter @Setter
+    private int listingCacheMaxEntries = 200000;
+
+    /*
+        How long a listing is trusted for, which bounds how stale a file changed in place outside SFTP can look
+     */
+    @Getter @Setter
+    private long listingCacheMaxAgeMillis = 30000;
+
+    /*
+        Named network shaping profiles that a start request can refer to
+     */
+    @Getter @Setter
+    private Map<String, ShapingProfile> shapingProfiles = new HashMap<String, ShapingProfile>();
+
+    /*
+        How often servers with a session cap send a heartbeat. A client that drops its socket without saying goodbye
+        is only noticed once a write to it fails, so this bounds how long it keeps holding a slot
+     */
+    @Getter @Setter
+    private long shapingHeartbeatMillis = 1000;
+
+    /*
+        Threads that write the files of a seeded archive, the archive itself is always read by a single thread
+     */
+    @Getter @Setter
+    private int seedThreads = Runtime.getRuntime().availableProcessors();
+
+    /*
+        Bytes of extracted files held in memory while they wait for a write thread, the reader blocks once it is
+        reached so memory stays flat no matter how large the archive is
+     */
+    @Getter @Setter
+    private int seedMaxBufferedBytes = 64 * 1024 * 1024;
+
+    /*
+        How SFTP channels get their threads, see SubsystemExecutorType. SHARED and VIRTUAL are opt-in
+     */
+    @Getter @Setter
+    private SubsystemExecutorType subsystemExecutor = SubsystemExecutorType.PER_CHANNEL;
+
+    /*
+        Channels served at once by the shared executor, across all servers
+     */
+    @Getter @Setter
+    private int subsystemThreads = 256;
+
+    /*
+        Channels waiting for a thread of the shared executor before new ones are refused. Zero refuses a channel as soon
+        as every thread is busy, a waiting channel's client gets no reply until a thread frees up
+     */
+    @Getter @Setter
+    private int subsystemQueueSize = 0;
+
+    /*
+        Upload checksums remembered per server, the oldest are forgotten beyond this. Zero turns them off
+     */
+    @Getter @Setter
+    private int checksumMaxFiles = 100000;
 }
@@ -1,5 +1,8 @@
 package com.michaelpippolito.utils.sftp;
 
+import com.michaelpippolito.utils.server.BatchServerCommandResponse;
+import com.michaelpippolito.utils.server.ServerCommandJob;
+import com.michaelpippolito.utils.server.ServerCommandJobStatus;
 import com.michaelpippolito.utils.server.ServerCommandResponse;
 import com.michaelpippolito.utils.server.ServerCommandStatus;
 import com.michaelpippolito.utils.sftp.request.StartSftpServerRequest;
@@ -7,10 +10,20 @@ import com.michaelpippolito.utils.sftp.request.StopSftpServerRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
 
 @RestController
 public class SftpController {
@@ -18,6 +31,15 @@ public class SftpController {
     @Autowired
     private SftpHelper sftpHelper;
 
+    @Autowired
+    private SftpJobManager sftpJobManager;
+
+    @Autowired
+    private SftpConfig config;
+
+    @Autowired
+    private SftpChecksums sftpChecksums;
+
     @PostMapping("/sftp/start/{port}")
     public ResponseEntity<ServerCommandResponse> sftpResponse(@PathVariable int port) {
         return sftpResponse(sftpHelper.startSftpServer(port));
@@ -38,6 +60,118 @@ public class SftpController {
         return sftpResponse(sftpHelper.stopSftpServer(request));
     }
 
+    @PostMapping("/sftp/async/start/{port}")
+    public ResponseEntity<ServerCommandJob> startSftpServerAsync(@PathVariable int port) {
+        return startSftpServerAsync(new StartSftpServerRequest(port, Collections.emptyList()));
+    }
+
+    @PostMapping("/sftp/async/start")
+    public ResponseEntity<ServerCommandJob> startSftpServerAsync(@RequestBody StartSftpServerRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                sftpJobManager.submit(request.getPort(), sftpHelper.startSftpServerAsync(request))
+        );
+    }
+
+    @PostMapping("/sftp/async/stop/{port}")
+    public ResponseEntity<ServerCommandJob> stopSftpServerAsync(@PathVariable int port) {
+        return stopSftpServerAsync(new StopSftpServerRequest(port));
+    }
+
+    @PostMapping("/sftp/async/stop")
+    public ResponseEntity<ServerCommandJob> stopSftpServerAsync(@RequestBody StopSftpServerRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                sftpJobManager.submit(request.getPort(), sftpHelper.stopSftpServerAsync(request))
+        );
+    }
+
+    /*
+        With waitMillis the request is parked, without holding a servlet thread, until the job completes or the wait
+        runs out, whichever comes first
+     */
+    @GetMapping("/sftp/jobs/{jobId}")
+    public DeferredResult<ResponseEntity<ServerCommandJob>> getJob(@PathVariable String jobId, @RequestParam(defaultValue = "0") long waitMillis) {
+        DeferredResult<ResponseEntity<ServerCommandJob>> result = new DeferredResult<ResponseEntity<ServerCommandJob>>(
+                Math.max(1, Math.min(waitMillis, config.getMaxJobWaitMillis()))
+        );
+        ServerCommandJob job = sftpJobManager.getJob(jobId);
+        if (job == null) {
+            result.setResult(ResponseEntity.notFound().build());
+        } else if (waitMillis <= 0 || job.getJobStatus().equals(ServerCommandJobStatus.COMPLETED)) {
+            result.setResult(ResponseEntity.ok(job));
+        } else {
+            result.onTimeout(() -> result.setResult(ResponseEntity.ok(sftpJobManager.getJob(jobId))));
+            sftpJobManager.getCompletion(jobId).thenAccept(completedJob -> result.setResult(ResponseEntity.ok(completedJob)));
+        }
+        return result;
+    }
+
+    @PostMapping("/sftp/reset/{port}")
+    public ResponseEntity<ServerCommandResponse> resetSftpServer(@PathVariable int port) {
+        return sftpResponse(sftpHelper.resetSftpServer(port));
+    }
+
+    @PostMapping("/sftp/snapshot/{port}")
+    public ResponseEntity<ServerCommandResponse> snapshotSftpServer(@PathVariable int port, @RequestParam(defaultValue = "default") String name) {
+        return sftpResponse(sftpHelper.snapshotSftpServer(port, name));
+    }
+
+    @PostMapping("/sftp/restore/{port}")
+    public ResponseEntity<ServerCommandResponse> restoreSftpServer(@PathVariable int port, @RequestParam(defaultValue = "default") String name) {
+        return sftpResponse(sftpHelper.restoreSftpServer(port, name));
+    }
+
+    /*
+        Seeds from the archive at path when it is given, otherwise from the request body, which is extracted as it
+        arrives rather than being read into memory first
+     */
+    @PostMapping("/sftp/seed/{port}")
+    public ResponseEntity<SeedSftpServerResponse> seedSftpServer(@PathVariable int port, @RequestParam(required = false) String path, HttpServletRequest request) throws IOException {
+        SeedSftpServerResponse response;
+        if (path != null) {
+            response = sftpHelper.seedSftpServer(port, Paths.get(path));
+        } else {
+            try (InputStream body = request.getInputStream()) {
+                response = sftpHelper.seedSftpServer(port, body);
+            }
+        }
+        if (response.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+            return ResponseEntity.status(HttpStatus.OK).body(response);
+        } else {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+
+    /*
+        The digests taken while the file at path was uploaded, path being what the SFTP client used. Not found when the
+        file was not uploaded in one sequential pass or has changed since
+     */
+    @GetMapping("/sftp/checksum/{port}")
+    public ResponseEntity<FileChecksum> getChecksum(@PathVariable int port, @RequestParam String path) {
+        FileChecksum checksum = sftpChecksums.get(port, path);
+        if (checksum == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(checksum);
+    }
+
+    @PostMapping("/sftp/start/batch")
+    public ResponseEntity<BatchServerCommandResponse> startSftpServers(@RequestBody List<StartSftpServerRequest> requests) {
+        return sftpResponse(sftpHelper.startSftpServers(requests));
+    }
+
+    @PostMapping("/sftp/stop/batch")
+    public ResponseEntity<BatchServerCommandResponse> stopSftpServers(@RequestBody List<StopSftpServerRequest> requests) {
+        return sftpResponse(sftpHelper.stopSftpServers(requests));
+    }
+
+    private ResponseEntity<BatchServerCommandResponse> sftpResponse(BatchServerCommandResponse response) {
+        if (response.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+            return ResponseEntity.status(HttpStatus.OK).body(response);
+        } else {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+
     private ResponseEntity<ServerCommandResponse> sftpResponse(ServerCommandResponse response) {
         if (response.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
             return ResponseEntity.status(HttpStatus.OK).body(response);
@@ -0,0 +1,22 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.FileHandle;
+
+import java.nio.file.Path;
+
+/*
+    Told about the files ExtendedSftpSubsystem writes itself for the copy-file and copy-data extensions, which raise no
+    SftpEventListener events. Event listeners of the subsystem factory that also implement this are registered for it
+ */
+public interface SftpCopyListener {
+
+    default void copying(ServerSession session, Path source, Path target) {
+    }
+
+    /*
+        The target handle is the one copy-data wrote through and null for copy-file. Called whether or not the copy
+        succeeded, since a failed copy may still have written part of the target
+     */
+    void copied(ServerSession session, Path source, Path target, FileHandle targetHandle, long bytes, Throwable thrown);
+}
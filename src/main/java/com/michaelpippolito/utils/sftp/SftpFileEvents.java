@@ -0,0 +1,74 @@
+package com.michaelpippolito.utils.sftp;
+
+import com.michaelpippolito.utils.events.FileEventBroadcaster;
+import com.michaelpippolito.utils.events.FileEventType;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.AbstractSftpEventListenerAdapter;
+import org.apache.sshd.server.subsystem.sftp.FileHandle;
+import org.apache.sshd.server.subsystem.sftp.Handle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/*
+    Publishes file events from the SFTP subsystem of every server. An upload is reported once the client closes the
+    handle it wrote through, so consumers never see a partially written file
+ */
+@Component
+public class SftpFileEvents extends AbstractSftpEventListenerAdapter implements SftpCopyListener {
+
+    @Autowired
+    private FileEventBroadcaster fileEventBroadcaster;
+
+    @Override
+    public void closed(ServerSession session, String remoteHandle, Handle localHandle, Throwable thrown) {
+        if (thrown != null || !(localHandle instanceof FileHandle)) {
+            return;
+        }
+        FileHandle fileHandle = (FileHandle) localHandle;
+        if (!fileHandle.getOpenOptions().contains(StandardOpenOption.WRITE) && !fileHandle.getOpenOptions().contains(StandardOpenOption.APPEND)) {
+            return;
+        }
+        Long size;
+        try {
+            size = Files.size(fileHandle.getFile());
+        } catch (IOException e) {
+            size = null;
+        }
+        fileEventBroadcaster.publish(FileEventType.UPLOADED, SftpSessions.getPort(session), fileHandle.getFile().toString(), null, false, size);
+    }
+
+    @Override
+    public void copied(ServerSession session, Path source, Path target, FileHandle targetHandle, long bytes, Throwable thrown) {
+        if (thrown != null) {
+            return;
+        }
+        Long size;
+        try {
+            size = Files.size(target);
+        } catch (IOException e) {
+            size = null;
+        }
+        fileEventBroadcaster.publish(FileEventType.COPIED, SftpSessions.getPort(session), source.toString(), target.toString(), false, size);
+    }
+
+    @Override
+    public void moved(ServerSession session, Path srcPath, Path dstPath, Collection<CopyOption> opts, Throwable thrown) {
+        if (thrown == null) {
+            fileEventBroadcaster.publish(FileEventType.RENAMED, SftpSessions.getPort(session), srcPath.toString(), dstPath.toString(), Files.isDirectory(dstPath), null);
+        }
+    }
+
+    @Override
+    public void removed(ServerSession session, Path path, boolean isDirectory, Throwable thrown) {
+        if (thrown == null) {
+            fileEventBroadcaster.publish(FileEventType.REMOVED, SftpSessions.getPort(session), path.toString(), null, isDirectory, null);
+        }
+    }
+}
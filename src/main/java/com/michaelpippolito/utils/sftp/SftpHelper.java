@@ -3,31 +3,48 @@ package com.michaelpippolito.utils.sftp;
 import com.michaelpippolito.utils.server.*;
 import com.michaelpippolito.utils.sftp.request.StartSftpServerRequest;
 import com.michaelpippolito.utils.sftp.request.StopSftpServerRequest;
+import com.michaelpippolito.utils.sftp.shaping.NetworkShaper;
+import com.michaelpippolito.utils.sftp.shaping.SessionCap;
+import com.michaelpippolito.utils.sftp.shaping.ShapingIoServiceFactoryFactory;
+import com.michaelpippolito.utils.sftp.shaping.ShapingProfile;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.PropertyResolverUtils;
 import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
 import org.apache.sshd.common.io.nio2.Nio2ServiceFactoryFactory;
+import org.apache.sshd.common.io.nio2.Nio2Session;
+import org.apache.sshd.common.util.threads.CloseableExecutorService;
+import org.apache.sshd.common.util.threads.NoCloseExecutor;
+import org.apache.sshd.common.util.threads.ThreadUtils;
 import org.apache.sshd.server.SshServer;
-import org.apache.sshd.server.auth.AsyncAuthException;
-import org.apache.sshd.server.auth.password.PasswordAuthenticator;
-import org.apache.sshd.server.auth.password.PasswordChangeRequiredException;
-import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
-import org.apache.sshd.server.session.ServerSession;
-import org.apache.sshd.server.subsystem.SubsystemFactory;
+import org.apache.sshd.server.subsystem.sftp.AbstractSftpSubsystemHelper;
 import org.apache.sshd.server.subsystem.sftp.SftpSubsystemFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.io.File;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 @Component
 @Slf4j
 public class SftpHelper {
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+    private static final int EPHEMERAL_PORT_ATTEMPTS = 3;
 
     @Autowired
     private ServerManager serverManager;
@@ -35,23 +52,275 @@ public class SftpHelper {
     @Autowired
     private SftpConfig config;
 
-    private Map<Integer, SshServer> sftpServers = new HashMap<Integer, SshServer>();
+    @Autowired
+    private SftpHostKeyStore hostKeyStore;
+
+    @Autowired
+    private InMemoryFileSystemManager inMemoryFileSystems;
+
+    @Autowired
+    private SnapshotManager snapshotManager;
+
+    @Autowired
+    private ArchiveSeeder archiveSeeder;
+
+    @Autowired
+    private SftpMetrics sftpMetrics;
+
+    @Autowired
+    private SftpFileEvents sftpFileEvents;
+
+    @Autowired
+    private SftpListingCaches sftpListingCaches;
+
+    @Autowired
+    private SftpTransferJournal sftpTransferJournal;
+
+    @Autowired
+    private SftpChecksums sftpChecksums;
+
+    private Map<Integer, SshServer> sftpServers = new ConcurrentHashMap<Integer, SshServer>();
+
+    /*
+        Ports whose archive is being extracted. Seeding marks its port under the port lock and extracts without it, so
+        a long extraction does not hold up every other port hashed onto the same lock, and the commands that would pull
+        the root out from under it check the mark instead
+     */
+    private Set<Integer> seedingPorts = ConcurrentHashMap.newKeySet();
+
+    /*
+        Every SFTP Server shares this pool for its asynchronous channel group instead of creating its own, so the number
+        of I/O threads stays flat no matter how many ports are running
+     */
+    private CloseableExecutorService ioExecutor;
+
+    private ExecutorService lifecycleExecutor;
+
+    /*
+        Delivers packets held back by network shaping. Sessions waiting on their token buckets only hold queued tasks,
+        and the pool only starts threads once a shaped server sees traffic
+     */
+    private ScheduledExecutorService shapingExecutor;
+
+    /*
+        Shared by the SFTP subsystems of every server, null when each channel gets its own thread
+     */
+    private SubsystemExecutor subsystemExecutor;
+
+    /*
+        Fully configured but unbound servers, so a start only has to assign a port and bind
+     */
+    private BlockingQueue<SshServer> standbyServers = new LinkedBlockingQueue<SshServer>();
+
+    private AtomicBoolean standbyRefillScheduled = new AtomicBoolean();
 
     @PostConstruct
     public void init() {
+        ioExecutor = ThreadUtils.newFixedThreadPool("sftp-nio2", config.getIoThreads());
+        lifecycleExecutor = Executors.newFixedThreadPool(config.getLifecycleThreads(), new CustomizableThreadFactory("sftp-lifecycle-"));
+        shapingExecutor = Executors.newScheduledThreadPool(config.getIoThreads(), new CustomizableThreadFactory("sftp-shaping-"));
+        if (config.getSubsystemExecutor() != SubsystemExecutorType.PER_CHANNEL) {
+            subsystemExecutor = new SubsystemExecutor(config.getSubsystemExecutor(), config.getSubsystemThreads(), config.getSubsystemQueueSize());
+        }
+        refillStandbyServers();
+
         if (config.isAutoStartup()) {
             if (!config.getDefaultServers().isEmpty()) {
-                for (int port : config.getDefaultServers().keySet()) {
-                    List<String> directories = config.getDefaultServers().get(port);
-                    startSftpServer(new StartSftpServerRequest(port, directories));
+                if (config.isParallelStartup()) {
+                    startDefaultServersInParallel();
+                } else {
+                    for (int port : config.getDefaultServers().keySet()) {
+                        List<String> directories = config.getDefaultServers().get(port);
+                        startSftpServer(new StartSftpServerRequest(port, directories));
+                    }
                 }
             }
         }
     }
 
+    @PreDestroy
+    public void destroy() {
+        stopAllSftpServers();
+        lifecycleExecutor.shutdownNow();
+        shapingExecutor.shutdownNow();
+        ioExecutor.shutdownNow();
+        if (subsystemExecutor != null) {
+            subsystemExecutor.shutdownNow();
+        }
+    }
+
+    public int getIoThreadCount() {
+        return ((ThreadPoolExecutor) ioExecutor).getPoolSize();
+    }
+
+    public SubsystemExecutorMetrics getSubsystemExecutorMetrics() {
+        return subsystemExecutor == null ? null : subsystemExecutor.summarize();
+    }
+
+    public int getSftpServerCount() {
+        return sftpServers.size();
+    }
+
+    /*
+        Runs on the @PostConstruct thread and only returns once every default server has either bound or failed, so
+        the application is not reported as ready while servers are still starting
+     */
+    private void startDefaultServersInParallel() {
+        List<StartSftpServerRequest> requests = new ArrayList<StartSftpServerRequest>();
+        for (Map.Entry<Integer, List<String>> defaultServer : config.getDefaultServers().entrySet()) {
+            requests.add(new StartSftpServerRequest(defaultServer.getKey(), defaultServer.getValue()));
+        }
+        log.info("Starting " + requests.size() + " default SFTP Servers...");
+
+        BatchServerCommandResponse response = startSftpServers(requests);
+
+        int started = 0;
+        StringBuilder summary = new StringBuilder();
+        for (int i = 0; i < requests.size(); i++) {
+            ServerCommandResponse portResponse = response.getResponses().get(i);
+            if (portResponse.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+                started++;
+            }
+            summary.append(System.lineSeparator())
+                    .append("    port ").append(requests.get(i).getPort())
+                    .append(" -- ").append(portResponse.getCommandStatus())
+                    .append(" in ").append(response.getRequestMillis().get(i)).append("ms");
+        }
+        log.info("Started " + started + "/" + requests.size() + " default SFTP Servers in " + response.getElapsedMillis() + "ms" + summary);
+    }
+
+    public CompletableFuture<ServerCommandResponse> startSftpServerAsync(StartSftpServerRequest request) {
+        return CompletableFuture.supplyAsync(() -> startSftpServer(request), lifecycleExecutor);
+    }
+
+    public CompletableFuture<ServerCommandResponse> stopSftpServerAsync(StopSftpServerRequest request) {
+        return CompletableFuture.supplyAsync(() -> stopSftpServer(request), lifecycleExecutor);
+    }
+
+    public BatchServerCommandResponse startSftpServers(List<StartSftpServerRequest> requests) {
+        List<Callable<ServerCommandResponse>> commands = new ArrayList<Callable<ServerCommandResponse>>();
+        List<Integer> ports = new ArrayList<Integer>();
+        for (StartSftpServerRequest request : requests) {
+            commands.add(() -> startSftpServer(request));
+            ports.add(request.getPort());
+        }
+        return runServerCommands(commands, ports);
+    }
+
+    public BatchServerCommandResponse stopSftpServers(List<StopSftpServerRequest> requests) {
+        List<Callable<ServerCommandResponse>> commands = new ArrayList<Callable<ServerCommandResponse>>();
+        List<Integer> ports = new ArrayList<Integer>();
+        for (StopSftpServerRequest request : requests) {
+            commands.add(() -> stopSftpServer(request));
+            ports.add(request.getPort());
+        }
+        return runServerCommands(commands, ports);
+    }
+
+    /*
+        Runs one command per request on the lifecycle pool and waits for all of them. Commands for different ports only
+        contend on their own port locks, so the batch takes roughly as long as its slowest port. Results are in request
+        order rather than keyed by port, since several requests may ask for port 0 or for ranges starting at the same
+        port
+     */
+    private BatchServerCommandResponse runServerCommands(List<Callable<ServerCommandResponse>> commands, List<Integer> ports) {
+        long startTime = System.nanoTime();
+        Long[] requestMillis = new Long[commands.size()];
+        List<Future<ServerCommandResponse>> futures = new ArrayList<Future<ServerCommandResponse>>();
+        for (int i = 0; i < commands.size(); i++) {
+            int index = i;
+            futures.add(lifecycleExecutor.submit(() -> {
+                long requestStartTime = System.nanoTime();
+                try {
+                    return commands.get(index).call();
+                } finally {
+                    requestMillis[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStartTime);
+                }
+            }));
+        }
+
+        ServerCommandStatus commandStatus = ServerCommandStatus.SUCCESS;
+        List<ServerCommandResponse> responses = new ArrayList<ServerCommandResponse>();
+        for (int i = 0; i < futures.size(); i++) {
+            Future<ServerCommandResponse> future = futures.get(i);
+            ServerCommandResponse response;
+            try {
+                response = future.get();
+            } catch (ExecutionException e) {
+                String errorMessage = "Failed running command for SFTP Server on port " + ports.get(i) + " -- " + ExceptionUtils.getStackTrace(e.getCause());
+                log.error(errorMessage);
+                response = new ServerCommandResponse(
+                        ServerCommandStatus.INTERNAL_ERROR,
+                        ServerStatus.DOWN,
+                        ServerType.SFTP,
+                        errorMessage
+                );
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                String errorMessage = "Interrupted while waiting on SFTP Server on port " + ports.get(i) + "!";
+                log.error(errorMessage);
+                response = new ServerCommandResponse(
+                        ServerCommandStatus.INTERNAL_ERROR,
+                        ServerStatus.DOWN,
+                        ServerType.SFTP,
+                        errorMessage
+                );
+            }
+            if (!response.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+                commandStatus = ServerCommandStatus.FAILED;
+            }
+            responses.add(response);
+        }
+
+        return new BatchServerCommandResponse(
+                commandStatus,
+                responses,
+                Arrays.asList(requestMillis),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+        );
+    }
+
     public ServerCommandResponse startSftpServer(StartSftpServerRequest request) {
+        ServerCommandResponse response;
+        if (request.getPort() == 0 || request.getPortRangeEnd() != null) {
+            response = startSftpServerOnFreePort(request);
+        } else {
+            Lock portLock = serverManager.getPortLock(request.getPort());
+            portLock.lock();
+            try {
+                response = startSftpServerOnLockedPort(request);
+            } finally {
+                portLock.unlock();
+            }
+        }
+
+        if (request.getSeedArchive() != null && response.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+            SeedSftpServerResponse seeded = seedSftpServer(response.getPort(), Paths.get(request.getSeedArchive()));
+            if (!seeded.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+                response.setMessage(response.getMessage() + " -- Failed to seed from " + request.getSeedArchive() + "!");
+            }
+        }
+        return response;
+    }
+
+    private ServerCommandResponse startSftpServerOnLockedPort(StartSftpServerRequest request) {
         log.info("Starting SFTP Server on port " + request.getPort() + "...");
 
+        SftpTuning tuning = getTuning(request);
+        ShapingProfile shaping = getShaping(request);
+        String invalidReason = validate(request, tuning, shaping);
+        if (invalidReason != null) {
+            String errorMessage = "Failed to start SFTP Server on port " + request.getPort() + " -- " + invalidReason;
+            log.error(errorMessage);
+            return new ServerCommandResponse(
+                    ServerCommandStatus.FAILED,
+                    ServerStatus.DOWN,
+                    ServerType.SFTP,
+                    errorMessage
+            );
+        }
+
         SshServer server;
         if (serverManager.isPortInUse(request.getPort())) {
             if (serverManager.isServerOfType(request.getPort(), ServerType.SFTP)) {
@@ -61,8 +330,8 @@ public class SftpHelper {
                     /*
                         This should never happen, but including it in case something goes horribly wrong
                      */
-                    serverManager.abandonPort(request.getPort());
-                    server = createSftpServer(request.getPort());
+                    serverManager.abandonPort(request.getPort(), ServerType.SFTP);
+                    server = createSftpServer(request.getPort(), isInMemory(request), isListingCache(request), tuning, shaping);
                 }
             } else {
                 ServerType existingServerType = serverManager.getServerType(request.getPort());
@@ -77,13 +346,120 @@ public class SftpHelper {
                 );
             }
         } else {
-            server = createSftpServer(request.getPort());
+            server = createSftpServer(request.getPort(), isInMemory(request), isListingCache(request), tuning, shaping);
         }
 
-        ServerCommandResponse response = initializeSftpServer(server);
+        return finishStartingSftpServer(request, server, initializeSftpServer(server));
+    }
+
+    /*
+        Port 0 lets the operating system pick a free port as the server binds, and a range is walked until one of its
+        ports binds. Either way the port is claimed by binding it rather than by probing for it first, so concurrent
+        starts, here or in other processes, can never be handed the same port
+     */
+    private ServerCommandResponse startSftpServerOnFreePort(StartSftpServerRequest request) {
+        String portDescription = request.getPortRangeEnd() == null
+                ? "an ephemeral port"
+                : "a port between " + request.getPort() + " and " + request.getPortRangeEnd();
+        log.info("Starting SFTP Server on " + portDescription + "...");
+
+        SftpTuning tuning = getTuning(request);
+        ShapingProfile shaping = getShaping(request);
+        String invalidReason = validate(request, tuning, shaping);
+        if (invalidReason != null) {
+            String errorMessage = "Failed to start SFTP Server on " + portDescription + " -- " + invalidReason;
+            log.error(errorMessage);
+            return new ServerCommandResponse(
+                    ServerCommandStatus.FAILED,
+                    ServerStatus.DOWN,
+                    ServerType.SFTP,
+                    errorMessage
+            );
+        }
+
+        if (request.getPortRangeEnd() != null) {
+            for (int port = request.getPort(); port <= request.getPortRangeEnd(); port++) {
+                Lock portLock = serverManager.getPortLock(port);
+                portLock.lock();
+                try {
+                    if (!serverManager.isPortInUse(port)) {
+                        SshServer server = createSftpServer(port, isInMemory(request), isListingCache(request), tuning, shaping);
+                        ServerCommandResponse response = initializeSftpServer(server);
+                        if (response.getCommandStatus().equals(ServerCommandStatus.SUCCESS)) {
+                            return finishStartingSftpServer(request, server, response);
+                        }
+                    }
+                } finally {
+                    portLock.unlock();
+                }
+            }
+        } else {
+            for (int attempt = 0; attempt < EPHEMERAL_PORT_ATTEMPTS; attempt++) {
+                SshServer server = createSftpServer(0, tuning, shaping);
+                try {
+                    server.start();
+                } catch (IOException e) {
+                    log.warn("Failed starting SFTP Server on an ephemeral port, trying again -- " + ExceptionUtils.getStackTrace(e));
+                    try {
+                        server.stop(true);
+                    } catch (IOException stopException) {
+                        log.error("Failed stopping SFTP Server that did not start -- " + ExceptionUtils.getStackTrace(stopException));
+                    }
+                    continue;
+                }
+
+                /*
+                    Registering can only fail when the port is still held in ServerManager by a server that is not
+                    bound to it, e.g. one whose start on that port is failing right now
+                 */
+                int port = server.getPort();
+                Lock portLock = serverManager.getPortLock(port);
+                portLock.lock();
+                try {
+                    if (!serverManager.isPortInUse(port) && serverManager.occupyPort(port, ServerType.SFTP)) {
+                        if (!registerSftpServer(server)) {
+                            serverManager.abandonPort(port, ServerType.SFTP);
+                            stopUnregisteredSftpServer(server);
+                            continue;
+                        }
+                        resetPort(server, port, isInMemory(request), isListingCache(request));
+                        String successMessage = "SFTP Server running on port " + port + "!";
+                        log.info(successMessage);
+                        return finishStartingSftpServer(request, server, new ServerCommandResponse(
+                                ServerCommandStatus.SUCCESS,
+                                ServerStatus.UP,
+                                ServerType.SFTP,
+                                successMessage
+                        ));
+                    }
+                } finally {
+                    portLock.unlock();
+                }
+                log.warn("Ephemeral port " + port + " is registered to another server, releasing it and trying again...");
+                try {
+                    server.stop(true);
+                } catch (IOException e) {
+                    log.error("Failed releasing ephemeral port " + port + " -- " + ExceptionUtils.getStackTrace(e));
+                }
+            }
+        }
+
+        String errorMessage = "Failed to start SFTP Server on " + portDescription + " -- no port could be bound!";
+        log.error(errorMessage);
+        return new ServerCommandResponse(
+                ServerCommandStatus.FAILED,
+                ServerStatus.DOWN,
+                ServerType.SFTP,
+                errorMessage
+        );
+    }
+
+    private ServerCommandResponse finishStartingSftpServer(StartSftpServerRequest request, SshServer server, ServerCommandResponse response) {
         if (response.getServerStatus().equals(ServerStatus.UP) && response.getServerType().equals(ServerType.SFTP)) {
+            response.setPort(server.getPort());
+            response.setSettings(getSettings(server));
             if (request.getDirectories() != null) {
-                if (!createDirectories(request.getDirectories())) {
+                if (!createDirectories(getRootDirectory(server), request.getDirectories())) {
                     response.setMessage(
                             response.getMessage() + " -- Failed to create directories! Please create manually!"
                     );
@@ -98,8 +474,22 @@ public class SftpHelper {
     }
 
     public ServerCommandResponse stopSftpServer(StopSftpServerRequest request) {
+        Lock portLock = serverManager.getPortLock(request.getPort());
+        portLock.lock();
+        try {
+            return stopSftpServerOnLockedPort(request);
+        } finally {
+            portLock.unlock();
+        }
+    }
+
+    private ServerCommandResponse stopSftpServerOnLockedPort(StopSftpServerRequest request) {
         log.info("Stopping SFTP Server on port " + request.getPort() + "...");
 
+        if (seedingPorts.contains(request.getPort())) {
+            return seedingInProgress(request.getPort(), "stop");
+        }
+
         if (serverManager.isPortInUse(request.getPort())) {
             if (sftpServers.containsKey(request.getPort())) {
                 SshServer server = sftpServers.get(request.getPort());
@@ -139,31 +529,452 @@ public class SftpHelper {
         return stopSftpServer(new StopSftpServerRequest(port));
     }
 
-    public void stopAllSftpServers() {
-        HashSet<Integer> sftpPorts = new HashSet<Integer>(sftpServers.keySet());
-        for (int port : sftpPorts) {
-            stopSftpServer(new StopSftpServerRequest(port));
+    public ServerCommandResponse resetSftpServer(int port) {
+        Lock portLock = serverManager.getPortLock(port);
+        portLock.lock();
+        try {
+            log.info("Resetting SFTP Server on port " + port + "...");
+
+            SshServer server = sftpServers.get(port);
+            if (server == null) {
+                String errorMessage = "Failed to reset SFTP Server on port " + port + " -- no SFTP Server running";
+                log.error(errorMessage);
+                return new ServerCommandResponse(
+                        ServerCommandStatus.FAILED,
+                        ServerStatus.DOWN,
+                        ServerType.SFTP,
+                        errorMessage
+                );
+            } else if (!inMemoryFileSystems.isInMemory(port)) {
+                String errorMessage = "Failed to reset SFTP Server on port " + port + " -- server is not running in memory";
+                log.error(errorMessage);
+                return new ServerCommandResponse(
+                        ServerCommandStatus.FAILED,
+                        ServerStatus.UP,
+                        ServerType.SFTP,
+                        errorMessage
+                );
+            } else if (seedingPorts.contains(port)) {
+                return seedingInProgress(port, "reset");
+            }
+
+            ((VirtualFileSystemFactory) server.getFileSystemFactory()).setDefaultHomeDir(inMemoryFileSystems.open(port));
+
+            String successMessage = "Reset SFTP Server on port " + port + "!";
+            log.info(successMessage);
+            return new ServerCommandResponse(
+                    ServerCommandStatus.SUCCESS,
+                    ServerStatus.UP,
+                    ServerType.SFTP,
+                    successMessage
+            );
+        } finally {
+            portLock.unlock();
+        }
+    }
+
+    public ServerCommandResponse snapshotSftpServer(int port, String name) {
+        return runSnapshotCommand(port, name, "snapshot", (root, snapshot) -> snapshotManager.snapshot(root, snapshot));
+    }
+
+    public ServerCommandResponse restoreSftpServer(int port, String name) {
+        return runSnapshotCommand(port, name, "restore", (root, snapshot) -> snapshotManager.restore(snapshot, root));
+    }
+
+    public SeedSftpServerResponse seedSftpServer(int port, Path archive) {
+        return runSeedCommand(port, server -> seedSftpServer(server, archive));
+    }
+
+    /*
+        The body is extracted while it is being received, the seeding mark keeps the server from being stopped or reset
+        underneath the extraction
+     */
+    public SeedSftpServerResponse seedSftpServer(int port, InputStream archive) {
+        return runSeedCommand(port, server -> seedSftpServer(server, archive, "request body"));
+    }
+
+    private SeedSftpServerResponse runSeedCommand(int port, Function<SshServer, SeedSftpServerResponse> seedCommand) {
+        SshServer server;
+        Lock portLock = serverManager.getPortLock(port);
+        portLock.lock();
+        try {
+            server = sftpServers.get(port);
+            if (server == null) {
+                String errorMessage = "Failed to seed SFTP Server on port " + port + " -- no SFTP Server running";
+                log.error(errorMessage);
+                return new SeedSftpServerResponse(ServerCommandStatus.FAILED, ServerStatus.DOWN, errorMessage);
+            } else if (!seedingPorts.add(port)) {
+                String errorMessage = "Failed to seed SFTP Server on port " + port + " -- an archive is already being seeded";
+                log.error(errorMessage);
+                return new SeedSftpServerResponse(ServerCommandStatus.FAILED, ServerStatus.UP, errorMessage);
+            }
+        } finally {
+            portLock.unlock();
+        }
+
+        try {
+            return seedCommand.apply(server);
+        } finally {
+            seedingPorts.remove(port);
+        }
+    }
+
+    private ServerCommandResponse seedingInProgress(int port, String command) {
+        String errorMessage = "Failed to " + command + " SFTP Server on port " + port + " -- an archive is being seeded";
+        log.error(errorMessage);
+        return new ServerCommandResponse(
+                ServerCommandStatus.FAILED,
+                ServerStatus.UP,
+                ServerType.SFTP,
+                errorMessage
+        );
+    }
+
+    private SeedSftpServerResponse seedSftpServer(SshServer server, Path archive) {
+        try (InputStream in = Files.newInputStream(archive)) {
+            return seedSftpServer(server, in, archive.toString());
+        } catch (IOException e) {
+            String errorMessage = "Failed to seed SFTP Server on port " + server.getPort() + " from " + archive + " -- " + ExceptionUtils.getStackTrace(e);
+            log.error(errorMessage);
+            return new SeedSftpServerResponse(ServerCommandStatus.FAILED, ServerStatus.UP, errorMessage);
+        }
+    }
+
+    private SeedSftpServerResponse seedSftpServer(SshServer server, InputStream archive, String source) {
+        log.info("Seeding SFTP Server on port " + server.getPort() + " from " + source + "...");
+        try {
+            SeedSftpServerResponse response = archiveSeeder.seed(getRootDirectory(server), archive);
+            log.info("SFTP Server on port " + server.getPort() + " -- " + response.getMessage());
+            return response;
+        } catch (IOException e) {
+            String errorMessage = "Failed to seed SFTP Server on port " + server.getPort() + " from " + source + " -- " + ExceptionUtils.getStackTrace(e);
+            log.error(errorMessage);
+            return new SeedSftpServerResponse(ServerCommandStatus.FAILED, ServerStatus.UP, errorMessage);
+        }
+    }
+
+    private ServerCommandResponse runSnapshotCommand(int port, String name, String command, SnapshotCommand snapshotCommand) {
+        Lock portLock = serverManager.getPortLock(port);
+        portLock.lock();
+        try {
+            log.info("Running " + command + " " + name + " of SFTP Server on port " + port + "...");
+
+            SshServer server = sftpServers.get(port);
+            if (server == null) {
+                String errorMessage = "Failed to " + command + " SFTP Server on port " + port + " -- no SFTP Server running";
+                log.error(errorMessage);
+                return new ServerCommandResponse(
+                        ServerCommandStatus.FAILED,
+                        ServerStatus.DOWN,
+                        ServerType.SFTP,
+                        errorMessage
+                );
+            } else if (!SNAPSHOT_NAME.matcher(name).matches()) {
+                String errorMessage = "Failed to " + command + " SFTP Server on port " + port + " -- invalid snapshot name " + name;
+                log.error(errorMessage);
+                return new ServerCommandResponse(
+                        ServerCommandStatus.FAILED,
+                        ServerStatus.UP,
+                        ServerType.SFTP,
+                        errorMessage
+                );
+            } else if (seedingPorts.contains(port)) {
+                return seedingInProgress(port, command);
+            }
+
+            long startTime = System.nanoTime();
+            try {
+                snapshotCommand.run(getRootDirectory(server), getSnapshotDirectory(server).resolve(name));
+            } catch (IOException | UncheckedIOException e) {
+                String errorMessage = "Failed to " + command + " SFTP Server on port " + port + " -- " + ExceptionUtils.getStackTrace(e);
+                log.error(errorMessage);
+                return new ServerCommandResponse(
+                        ServerCommandStatus.FAILED,
+                        ServerStatus.UP,
+                        ServerType.SFTP,
+                        errorMessage
+                );
+            }
+
+            String successMessage = "Completed " + command + " " + name + " of SFTP Server on port " + port + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms!";
+            log.info(successMessage);
+            return new ServerCommandResponse(
+                    ServerCommandStatus.SUCCESS,
+                    ServerStatus.UP,
+                    ServerType.SFTP,
+                    successMessage
+            );
+        } finally {
+            portLock.unlock();
+        }
+    }
+
+    private Path getSnapshotDirectory(SshServer server) {
+        if (inMemoryFileSystems.isInMemory(server.getPort())) {
+            return inMemoryFileSystems.getSnapshotDir(server.getPort());
+        }
+
+        Path root = getRootDirectory(server);
+        Path snapshotDirectory = StringUtils.isEmpty(config.getSnapshotDir())
+                ? root.resolveSibling(root.getFileName() + "-snapshots")
+                : Paths.get(config.getSnapshotDir());
+        return snapshotDirectory.resolve(String.valueOf(server.getPort()));
+    }
+
+    private interface SnapshotCommand {
+        void run(Path root, Path snapshot) throws IOException;
+    }
+
+    public BatchServerCommandResponse stopAllSftpServers() {
+        List<StopSftpServerRequest> requests = new ArrayList<StopSftpServerRequest>();
+        for (int port : sftpServers.keySet()) {
+            requests.add(new StopSftpServerRequest(port));
         }
+        return stopSftpServers(requests);
     }
 
-    private SshServer createSftpServer(int port) {
-        SshServer server = SshServer.setUpDefaultServer();
+    private SshServer createSftpServer(int port, boolean inMemory, boolean listingCache, SftpTuning tuning, ShapingProfile shaping) {
+        SshServer server = createSftpServer(port, tuning, shaping);
+        resetPort(server, port, inMemory, listingCache);
+        return server;
+    }
+
+    private SshServer createSftpServer(int port, SftpTuning tuning, ShapingProfile shaping) {
+        SshServer server = standbyServers.poll();
+        if (server == null) {
+            server = buildSftpServer();
+        } else {
+            refillStandbyServers();
+        }
         server.setPort(port);
-        server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider());
-        server.setIoServiceFactoryFactory(new Nio2ServiceFactoryFactory());
-        server.setSubsystemFactories(Collections.<SubsystemFactory>singletonList(new SftpSubsystemFactory()));
-        server.setPasswordAuthenticator(new PasswordAuthenticator() {
-            @Override
-            public boolean authenticate(String s, String s1, ServerSession serverSession) throws PasswordChangeRequiredException, AsyncAuthException {
-                return true;
+        applyTuning(server, tuning);
+        if (shaping != null) {
+            NetworkShaper shaper = new NetworkShaper(shaping, shapingExecutor, config.getShapingHeartbeatMillis());
+            server.setIoServiceFactoryFactory(new ShapingIoServiceFactoryFactory(server.getIoServiceFactoryFactory(), shaper));
+            if (shaping.getMaxSessions() != null) {
+                SessionCap.install(server, shaper);
             }
-        });
+        }
+        return server;
+    }
+
+    /*
+        Sets up everything kept per port, which for an ephemeral port can only happen once it has been bound
+     */
+    private void resetPort(SshServer server, int port, boolean inMemory, boolean listingCache) {
+        sftpMetrics.reset(port);
+        sftpChecksums.reset(port);
+        if (listingCache) {
+            sftpListingCaches.enable(port, config.getListingCacheMaxEntries(), config.getListingCacheMaxAgeMillis());
+        } else {
+            sftpListingCaches.disable(port);
+        }
+        if (inMemory) {
+            server.setFileSystemFactory(new VirtualFileSystemFactory(inMemoryFileSystems.open(port)));
+        }
+    }
+
+    private boolean isInMemory(StartSftpServerRequest request) {
+        return request.getInMemory() != null ? request.getInMemory() : config.isInMemory();
+    }
+
+    private boolean isListingCache(StartSftpServerRequest request) {
+        return request.getListingCache() != null ? request.getListingCache() : config.isListingCache();
+    }
+
+    /*
+        Request overrides win field by field over sftp.tuning
+     */
+    private SftpTuning getTuning(StartSftpServerRequest request) {
+        SftpTuning defaults = config.getTuning();
+        SftpTuning overrides = request.getTuning() != null ? request.getTuning() : new SftpTuning();
+        return new SftpTuning(
+                overrides.getWindowSize() != null ? overrides.getWindowSize() : defaults.getWindowSize(),
+                overrides.getMaxPacketSize() != null ? overrides.getMaxPacketSize() : defaults.getMaxPacketSize(),
+                overrides.getReadBufferSize() != null ? overrides.getReadBufferSize() : defaults.getReadBufferSize(),
+                overrides.getSocketBufferSize() != null ? overrides.getSocketBufferSize() : defaults.getSocketBufferSize(),
+                overrides.getMaxReadDataLength() != null ? overrides.getMaxReadDataLength() : defaults.getMaxReadDataLength()
+        );
+    }
+
+    /*
+        A named profile from sftp.shapingProfiles is the base, and inline fields of the request win over it
+     */
+    private ShapingProfile getShaping(StartSftpServerRequest request) {
+        ShapingProfile named = request.getShapingProfile() != null ? config.getShapingProfiles().get(request.getShapingProfile()) : null;
+        ShapingProfile inline = request.getShaping();
+        if (named == null && inline == null) {
+            return null;
+        }
+        ShapingProfile base = named != null ? named : new ShapingProfile();
+        ShapingProfile overrides = inline != null ? inline : new ShapingProfile();
+        return new ShapingProfile(
+                overrides.getBandwidthBytesPerSecond() != null ? overrides.getBandwidthBytesPerSecond() : base.getBandwidthBytesPerSecond(),
+                overrides.getSessionBandwidthBytesPerSecond() != null ? overrides.getSessionBandwidthBytesPerSecond() : base.getSessionBandwidthBytesPerSecond(),
+                overrides.getLatencyMillis() != null ? overrides.getLatencyMillis() : base.getLatencyMillis(),
+                overrides.getJitterMillis() != null ? overrides.getJitterMillis() : base.getJitterMillis(),
+                overrides.getMaxSessions() != null ? overrides.getMaxSessions() : base.getMaxSessions()
+        );
+    }
+
+    private String validate(StartSftpServerRequest request, SftpTuning tuning, ShapingProfile shaping) {
+        if ((tuning.getWindowSize() != null && tuning.getWindowSize() <= 0)
+                || (tuning.getMaxPacketSize() != null && tuning.getMaxPacketSize() <= 0)
+                || (tuning.getReadBufferSize() != null && tuning.getReadBufferSize() <= 0)
+                || (tuning.getSocketBufferSize() != null && tuning.getSocketBufferSize() <= 0)
+                || (tuning.getMaxReadDataLength() != null && tuning.getMaxReadDataLength() <= 0)) {
+            return "window, packet and buffer sizes must be positive";
+        }
+        if (request.getPortRangeEnd() != null
+                && (request.getPort() < 1 || request.getPortRangeEnd() < request.getPort() || request.getPortRangeEnd() > 65535)) {
+            return "a port range must start at 1 or above and end at or after its start, at 65535 at most";
+        }
+        if (request.getShapingProfile() != null && !config.getShapingProfiles().containsKey(request.getShapingProfile())) {
+            return "unknown shaping profile " + request.getShapingProfile();
+        }
+        if (shaping != null && ((shaping.getBandwidthBytesPerSecond() != null && shaping.getBandwidthBytesPerSecond() <= 0)
+                || (shaping.getSessionBandwidthBytesPerSecond() != null && shaping.getSessionBandwidthBytesPerSecond() <= 0)
+                || (shaping.getLatencyMillis() != null && shaping.getLatencyMillis() < 0)
+                || (shaping.getJitterMillis() != null && shaping.getJitterMillis() < 0)
+                || (shaping.getMaxSessions() != null && shaping.getMaxSessions() <= 0))) {
+            return "bandwidths and max sessions must be positive, latency and jitter must not be negative";
+        }
+        return null;
+    }
+
+    /*
+        The SFTP subsystem resolves its properties through the session, which falls back to the server, so setting them
+        on the server covers both the SSH channels and the SFTP subsystem
+     */
+    private void applyTuning(SshServer server, SftpTuning tuning) {
+        if (tuning.getWindowSize() != null) {
+            PropertyResolverUtils.updateProperty(server, FactoryManager.WINDOW_SIZE, tuning.getWindowSize());
+        }
+        if (tuning.getMaxPacketSize() != null) {
+            PropertyResolverUtils.updateProperty(server, FactoryManager.MAX_PACKET_SIZE, tuning.getMaxPacketSize());
+        }
+        if (tuning.getReadBufferSize() != null) {
+            PropertyResolverUtils.updateProperty(server, FactoryManager.NIO2_READ_BUFFER_SIZE, tuning.getReadBufferSize());
+        }
+        if (tuning.getSocketBufferSize() != null) {
+            PropertyResolverUtils.updateProperty(server, FactoryManager.SOCKET_SNDBUF, tuning.getSocketBufferSize());
+            PropertyResolverUtils.updateProperty(server, FactoryManager.SOCKET_RCVBUF, tuning.getSocketBufferSize());
+        }
+        if (tuning.getMaxReadDataLength() != null) {
+            PropertyResolverUtils.updateProperty(server, AbstractSftpSubsystemHelper.MAX_READDATA_PACKET_LENGTH_PROP, tuning.getMaxReadDataLength());
+        }
+    }
+
+    private Map<String, Long> getSettings(SshServer server) {
+        Map<String, Long> settings = new LinkedHashMap<String, Long>();
+        settings.put("windowSize", PropertyResolverUtils.getLongProperty(server, FactoryManager.WINDOW_SIZE, FactoryManager.DEFAULT_WINDOW_SIZE));
+        settings.put("maxPacketSize", PropertyResolverUtils.getLongProperty(server, FactoryManager.MAX_PACKET_SIZE, FactoryManager.DEFAULT_MAX_PACKET_SIZE));
+        settings.put("readBufferSize", PropertyResolverUtils.getLongProperty(server, FactoryManager.NIO2_READ_BUFFER_SIZE, Nio2Session.DEFAULT_READBUF_SIZE));
+        Long socketBufferSize = PropertyResolverUtils.getLong(server, FactoryManager.SOCKET_RCVBUF);
+        if (socketBufferSize != null) {
+            settings.put("socketBufferSize", socketBufferSize);
+        }
+        settings.put("maxReadDataLength", PropertyResolverUtils.getLongProperty(server, AbstractSftpSubsystemHelper.MAX_READDATA_PACKET_LENGTH_PROP, AbstractSftpSubsystemHelper.DEFAULT_MAX_READDATA_PACKET_LENGTH));
+        if (server.getIoServiceFactoryFactory() instanceof ShapingIoServiceFactoryFactory) {
+            ShapingProfile shaping = ((ShapingIoServiceFactoryFactory) server.getIoServiceFactoryFactory()).getShaper().getProfile();
+            putIfSet(settings, "bandwidthBytesPerSecond", shaping.getBandwidthBytesPerSecond());
+            putIfSet(settings, "sessionBandwidthBytesPerSecond", shaping.getSessionBandwidthBytesPerSecond());
+            putIfSet(settings, "latencyMillis", shaping.getLatencyMillis());
+            putIfSet(settings, "jitterMillis", shaping.getJitterMillis());
+            putIfSet(settings, "maxSessions", shaping.getMaxSessions() == null ? null : shaping.getMaxSessions().longValue());
+        }
+        DirectoryListingCache listingCache = sftpListingCaches.get(server.getPort());
+        if (listingCache != null) {
+            settings.put("listingCacheMaxEntries", (long) listingCache.getMaxEntries());
+        }
+        return settings;
+    }
+
+    private void putIfSet(Map<String, Long> settings, String key, Long value) {
+        if (value != null) {
+            settings.put(key, value);
+        }
+    }
+
+    private Path getRootDirectory(SshServer server) {
+        if (server.getFileSystemFactory() instanceof VirtualFileSystemFactory) {
+            return ((VirtualFileSystemFactory) server.getFileSystemFactory()).getDefaultHomeDir();
+        }
+        return Paths.get("").toAbsolutePath();
+    }
+
+    /*
+        Tops the standby pool back up on the lifecycle pool. Only one refill runs at a time, and it re-checks the pool
+        after clearing its flag so a server taken mid-refill is still replaced
+     */
+    private void refillStandbyServers() {
+        if (config.getStandbyServers() > 0 && standbyRefillScheduled.compareAndSet(false, true)) {
+            lifecycleExecutor.execute(() -> {
+                do {
+                    try {
+                        while (standbyServers.size() < config.getStandbyServers()) {
+                            standbyServers.offer(buildSftpServer());
+                        }
+                    } finally {
+                        standbyRefillScheduled.set(false);
+                    }
+                } while (standbyServers.size() < config.getStandbyServers() && standbyRefillScheduled.compareAndSet(false, true));
+            });
+        }
+    }
+
+    public boolean isBound(int port) {
+        SshServer server = sftpServers.get(port);
+        return server != null && server.isStarted() && server.isOpen() && !server.getBoundAddresses().isEmpty();
+    }
+
+    public int getActiveSessionCount(int port) {
+        SshServer server = sftpServers.get(port);
+        return server == null ? 0 : server.getActiveSessions().size();
+    }
+
+    public int getStandbyServerCount() {
+        return standbyServers.size();
+    }
+
+    private SshServer buildSftpServer() {
+        SftpSubsystemFactory sftpSubsystemFactory = new ExtendedSftpSubsystemFactory(sftpChecksums);
+        sftpSubsystemFactory.setFileSystemAccessor(new ListingCacheFileSystemAccessor(config.getMappedReadThresholdBytes(), config.getMappedReadWindowBytes(), sftpListingCaches));
+        sftpSubsystemFactory.addSftpEventListener(sftpMetrics);
+        sftpSubsystemFactory.addSftpEventListener(sftpFileEvents);
+        sftpSubsystemFactory.addSftpEventListener(sftpListingCaches);
+        sftpSubsystemFactory.addSftpEventListener(sftpTransferJournal);
+        sftpSubsystemFactory.addSftpEventListener(sftpChecksums);
+        if (subsystemExecutor != null) {
+            sftpSubsystemFactory.setExecutorServiceProvider(() -> new NoCloseExecutor(subsystemExecutor));
+        }
+        SshServer server = SftpServers.build(hostKeyStore, sftpSubsystemFactory);
+        server.setIoServiceFactoryFactory(new Nio2ServiceFactoryFactory(() -> ThreadUtils.noClose(ioExecutor)));
         if (!StringUtils.isEmpty(config.getLocalDir())) {
             server.setFileSystemFactory(new VirtualFileSystemFactory(Paths.get(config.getLocalDir())));
         }
         return server;
     }
 
+    /*
+        Only one server is ever registered for a port. Callers hold the port lock, so a caller that loses stops its own
+        server before anyone else can look at the port, and no started server is left running unregistered
+     */
+    private boolean registerSftpServer(SshServer server) {
+        SshServer registered = sftpServers.putIfAbsent(server.getPort(), server);
+        return registered == null || registered == server;
+    }
+
+    private void stopUnregisteredSftpServer(SshServer server) {
+        log.warn("Port " + server.getPort() + " is already registered to another SFTP Server, stopping this one...");
+        try {
+            server.stop(true);
+        } catch (IOException e) {
+            log.error("Failed stopping unregistered SFTP Server on port " + server.getPort() + " -- " + ExceptionUtils.getStackTrace(e));
+        }
+    }
+
     private ServerCommandResponse initializeSftpServer(SshServer server) {
         if (serverManager.occupyPort(server.getPort(), ServerType.SFTP)) {
             if (!server.isStarted()) {
@@ -172,6 +983,10 @@ public class SftpHelper {
                 } catch (IOException e) {
                     String errorMessage = "Failed starting SFTP Server on port " + server.getPort() + " -- " + ExceptionUtils.getStackTrace(e);
                     log.error(errorMessage);
+                    sftpServers.remove(server.getPort(), server);
+                    inMemoryFileSystems.close(server.getPort());
+                    sftpListingCaches.disable(server.getPort());
+                    serverManager.abandonPort(server.getPort(), ServerType.SFTP);
                     return new ServerCommandResponse(
                             ServerCommandStatus.FAILED,
                             ServerStatus.DOWN,
@@ -187,6 +1002,10 @@ public class SftpHelper {
                 } catch (IOException e) {
                     String errorMessage = "Failed opening SFTP Server on port " + server.getPort() + " -- " + ExceptionUtils.getStackTrace(e);
                     log.error(errorMessage);
+                    sftpServers.remove(server.getPort(), server);
+                    inMemoryFileSystems.close(server.getPort());
+                    sftpListingCaches.disable(server.getPort());
+                    serverManager.abandonPort(server.getPort(), ServerType.SFTP);
                     return new ServerCommandResponse(
                             ServerCommandStatus.FAILED,
                             ServerStatus.DOWN,
@@ -196,10 +1015,20 @@ public class SftpHelper {
                 }
             }
 
+            if (!registerSftpServer(server)) {
+                stopUnregisteredSftpServer(server);
+                String errorMessage = "Failed to start SFTP Server on port " + server.getPort() + " -- another SFTP Server is already registered to it!";
+                log.error(errorMessage);
+                return new ServerCommandResponse(
+                        ServerCommandStatus.FAILED,
+                        ServerStatus.UP,
+                        ServerType.SFTP,
+                        errorMessage
+                );
+            }
+
             String successMessage = "SFTP Server running on port " + server.getPort() + "!";
             log.info(successMessage);
-
-            sftpServers.put(server.getPort(), server);
             return new ServerCommandResponse(
                     ServerCommandStatus.SUCCESS,
                     ServerStatus.UP,
@@ -218,11 +1047,13 @@ public class SftpHelper {
         }
     }
 
-    private boolean createDirectories(List<String> directories) {
+    private boolean createDirectories(Path root, List<String> directories) {
         for (String directory : directories) {
             log.info("Creating directory {}...", directory);
-            if (!new File(config.getLocalDir() + File.separator + directory).mkdirs()) {
-                log.error("Failed creating directories -- {}", directory);
+            try {
+                Files.createDirectories(root.resolve(directory));
+            } catch (IOException e) {
+                log.error("Failed creating directories -- {} -- {}", directory, ExceptionUtils.getStackTrace(e));
                 return false;
             }
             log.info("Created directory {}!", directory);
@@ -263,8 +1094,10 @@ public class SftpHelper {
 
         String successMessage = "Stopped SFTP Server on port " + server.getPort() + "!";
         log.info(successMessage);
-        sftpServers.remove(server.getPort());
-        serverManager.abandonPort(server.getPort());
+        sftpServers.remove(server.getPort(), server);
+        inMemoryFileSystems.close(server.getPort());
+        sftpListingCaches.disable(server.getPort());
+        serverManager.abandonPort(server.getPort(), ServerType.SFTP);
         return new ServerCommandResponse(
                 ServerCommandStatus.SUCCESS,
                 ServerStatus.DOWN,
@@ -0,0 +1,78 @@
+package com.michaelpippolito.utils.sftp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sshd.common.keyprovider.KeyPairProvider;
+import org.apache.sshd.common.session.SessionContext;
+import org.apache.sshd.common.util.security.SecurityUtils;
+import org.apache.sshd.server.keyprovider.AbstractGeneratorHostKeyProvider;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Host keys shared by every SFTP Server. Each key is generated at most once, persisted under sftp.hostKeyDir so the
+    fingerprint survives restarts, and cached in memory after the first load so neither server start nor the first
+    client connection pays for key generation
+ */
+@Component
+@Slf4j
+public class SftpHostKeyStore implements KeyPairProvider {
+
+    @Autowired
+    private SftpConfig config;
+
+    private final List<AbstractGeneratorHostKeyProvider> keyProviders = new ArrayList<AbstractGeneratorHostKeyProvider>();
+
+    @PostConstruct
+    public void init() throws IOException, GeneralSecurityException {
+        Path hostKeyDir = null;
+        if (!StringUtils.isEmpty(config.getHostKeyDir())) {
+            hostKeyDir = Files.createDirectories(Paths.get(config.getHostKeyDir()));
+        }
+
+        for (String algorithm : config.getHostKeyAlgorithms()) {
+            if (SecurityUtils.EDDSA.equalsIgnoreCase(algorithm) && !SecurityUtils.isEDDSACurveSupported()) {
+                log.warn("Skipping {} host key -- no EdDSA security provider is available", algorithm);
+                continue;
+            }
+
+            SimpleGeneratorHostKeyProvider keyProvider = hostKeyDir == null
+                    ? new SimpleGeneratorHostKeyProvider()
+                    : new SimpleGeneratorHostKeyProvider(hostKeyDir.resolve("hostkey-" + algorithm.toLowerCase() + ".ser"));
+            keyProvider.setAlgorithm(algorithm);
+            keyProviders.add(keyProvider);
+        }
+
+        if (config.isPreGenerateHostKeys()) {
+            long startTime = System.nanoTime();
+            int keys = 0;
+            for (KeyPair ignored : loadKeys(null)) {
+                keys++;
+            }
+            log.info("Loaded " + keys + " SFTP host keys in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+        }
+    }
+
+    @Override
+    public Iterable<KeyPair> loadKeys(SessionContext session) throws IOException, GeneralSecurityException {
+        List<KeyPair> keyPairs = new ArrayList<KeyPair>();
+        for (AbstractGeneratorHostKeyProvider keyProvider : keyProviders) {
+            for (KeyPair keyPair : keyProvider.loadKeys(session)) {
+                keyPairs.add(keyPair);
+            }
+        }
+        return keyPairs;
+    }
+}
@@ -0,0 +1,145 @@
+package com.michaelpippolito.utils.sftp;
+
+import com.michaelpippolito.utils.loadtest.LoadTestJob;
+import com.michaelpippolito.utils.loadtest.LoadTestOperation;
+import com.michaelpippolito.utils.loadtest.LoadTestRequest;
+import com.michaelpippolito.utils.loadtest.LoadTestResponse;
+import com.michaelpippolito.utils.metrics.LatencySummary;
+import com.michaelpippolito.utils.server.*;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Tracks start/stop commands and load tests submitted asynchronously. Completed jobs are kept for sftp.jobRetentionMillis so their
+    results can still be fetched, and are swept out whenever a new job is submitted
+ */
+@Component
+public class SftpJobManager {
+
+    @Autowired
+    private SftpConfig config;
+
+    private Map<String, Job<ServerCommandResponse>> jobs = new ConcurrentHashMap<String, Job<ServerCommandResponse>>();
+
+    private Map<String, Job<LoadTestResponse>> loadTestJobs = new ConcurrentHashMap<String, Job<LoadTestResponse>>();
+
+    public ServerCommandJob submit(int port, CompletableFuture<ServerCommandResponse> command) {
+        removeExpiredJobs();
+
+        Job<ServerCommandResponse> job = new Job<ServerCommandResponse>(UUID.randomUUID().toString(), port);
+        jobs.put(job.jobId, job);
+        command.whenComplete((response, e) -> {
+            if (e != null) {
+                response = new ServerCommandResponse(
+                        ServerCommandStatus.INTERNAL_ERROR,
+                        ServerStatus.DOWN,
+                        ServerType.SFTP,
+                        "Failed running command for SFTP Server on port " + port + " -- " + ExceptionUtils.getStackTrace(e)
+                );
+            }
+            job.complete(response);
+        });
+        return toServerCommandJob(job);
+    }
+
+    public ServerCommandJob getJob(String jobId) {
+        Job<ServerCommandResponse> job = jobs.get(jobId);
+        return job == null ? null : toServerCommandJob(job);
+    }
+
+    /*
+        Completes with the job once it has finished, or null if there is no such job
+     */
+    public CompletableFuture<ServerCommandJob> getCompletion(String jobId) {
+        Job<ServerCommandResponse> job = jobs.get(jobId);
+        return job == null ? CompletableFuture.completedFuture(null) : job.completion.thenApply(response -> toServerCommandJob(job));
+    }
+
+    public LoadTestJob submitLoadTest(LoadTestRequest request, CompletableFuture<LoadTestResponse> loadTest) {
+        removeExpiredJobs();
+
+        Job<LoadTestResponse> job = new Job<LoadTestResponse>(UUID.randomUUID().toString(), request.getPort());
+        loadTestJobs.put(job.jobId, job);
+        loadTest.whenComplete((response, e) -> {
+            if (e != null) {
+                response = new LoadTestResponse(
+                        ServerCommandStatus.INTERNAL_ERROR,
+                        "Failed running load test against port " + request.getPort() + " -- " + ExceptionUtils.getStackTrace(e),
+                        request.getSessions(), 0, 0, 0, 0, 0, 0, new EnumMap<LoadTestOperation, LatencySummary>(LoadTestOperation.class)
+                );
+            }
+            job.complete(response);
+        });
+        return toLoadTestJob(job);
+    }
+
+    public LoadTestJob getLoadTestJob(String jobId) {
+        Job<LoadTestResponse> job = loadTestJobs.get(jobId);
+        return job == null ? null : toLoadTestJob(job);
+    }
+
+    /*
+        Completes with the load test job once it has finished, or null if there is no such job
+     */
+    public CompletableFuture<LoadTestJob> getLoadTestCompletion(String jobId) {
+        Job<LoadTestResponse> job = loadTestJobs.get(jobId);
+        return job == null ? CompletableFuture.completedFuture(null) : job.completion.thenApply(response -> toLoadTestJob(job));
+    }
+
+    private void removeExpiredJobs() {
+        long expiredBefore = System.currentTimeMillis() - config.getJobRetentionMillis();
+        jobs.values().removeIf(job -> job.completedAt != 0 && job.completedAt < expiredBefore);
+        loadTestJobs.values().removeIf(job -> job.completedAt != 0 && job.completedAt < expiredBefore);
+    }
+
+    private static ServerCommandJob toServerCommandJob(Job<ServerCommandResponse> job) {
+        ServerCommandResponse completedResponse = job.response;
+        return new ServerCommandJob(
+                job.jobId,
+                job.port,
+                completedResponse == null ? ServerCommandJobStatus.PENDING : ServerCommandJobStatus.COMPLETED,
+                completedResponse,
+                job.submittedAt,
+                job.completedAt
+        );
+    }
+
+    private static LoadTestJob toLoadTestJob(Job<LoadTestResponse> job) {
+        LoadTestResponse completedResponse = job.response;
+        return new LoadTestJob(
+                job.jobId,
+                job.port,
+                completedResponse == null ? ServerCommandJobStatus.PENDING : ServerCommandJobStatus.COMPLETED,
+                completedResponse,
+                job.submittedAt,
+                job.completedAt
+        );
+    }
+
+    private static class Job<T> {
+        private final String jobId;
+        private final int port;
+        private final long submittedAt = System.currentTimeMillis();
+        private final CompletableFuture<T> completion = new CompletableFuture<T>();
+        private volatile T response;
+        private volatile long completedAt;
+
+        private Job(String jobId, int port) {
+            this.jobId = jobId;
+            this.port = port;
+        }
+
+        private void complete(T response) {
+            this.completedAt = System.currentTimeMillis();
+            this.response = response;
+            completion.complete(response);
+        }
+    }
+}
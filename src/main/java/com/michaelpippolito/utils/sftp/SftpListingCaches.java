@@ -0,0 +1,104 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.AbstractSftpEventListenerAdapter;
+import org.apache.sshd.server.subsystem.sftp.FileHandle;
+import org.apache.sshd.server.subsystem.sftp.Handle;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.CopyOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    The directory listing cache of every port that has one, kept in step with changes made through the SFTP Server.
+    Changes made by other servers sharing the directory or outside SFTP are caught by the modification time checks
+ */
+@Component
+public class SftpListingCaches extends AbstractSftpEventListenerAdapter implements SftpCopyListener {
+
+    private Map<Integer, DirectoryListingCache> ports = new ConcurrentHashMap<Integer, DirectoryListingCache>();
+
+    public DirectoryListingCache get(int port) {
+        return ports.get(port);
+    }
+
+    public void enable(int port, int maxEntries, long maxAgeMillis) {
+        ports.put(port, new DirectoryListingCache(maxEntries, maxAgeMillis));
+    }
+
+    public void disable(int port) {
+        ports.remove(port);
+    }
+
+    @Override
+    public void open(ServerSession session, String remoteHandle, Handle localHandle) {
+        if (localHandle instanceof FileHandle && isWrite((FileHandle) localHandle)) {
+            fileChanged(session, localHandle.getFile());
+        }
+    }
+
+    @Override
+    public void written(ServerSession session, String remoteHandle, FileHandle localHandle, long offset, byte[] data, int dataOffset, int dataLen, Throwable thrown) {
+        fileChanged(session, localHandle.getFile());
+    }
+
+    @Override
+    public void closed(ServerSession session, String remoteHandle, Handle localHandle, Throwable thrown) {
+        if (localHandle instanceof FileHandle && isWrite((FileHandle) localHandle)) {
+            fileChanged(session, localHandle.getFile());
+        }
+    }
+
+    @Override
+    public void modifiedAttributes(ServerSession session, Path path, Map<String, ?> attrs, Throwable thrown) {
+        fileChanged(session, path);
+    }
+
+    @Override
+    public void created(ServerSession session, Path path, Map<String, ?> attrs, Throwable thrown) {
+        pathChanged(session, path);
+    }
+
+    @Override
+    public void moved(ServerSession session, Path srcPath, Path dstPath, Collection<CopyOption> opts, Throwable thrown) {
+        pathChanged(session, srcPath);
+        pathChanged(session, dstPath);
+    }
+
+    @Override
+    public void removed(ServerSession session, Path path, boolean isDirectory, Throwable thrown) {
+        pathChanged(session, path);
+    }
+
+    @Override
+    public void linked(ServerSession session, Path source, Path target, boolean symLink, Throwable thrown) {
+        pathChanged(session, source);
+    }
+
+    @Override
+    public void copied(ServerSession session, Path source, Path target, FileHandle targetHandle, long bytes, Throwable thrown) {
+        pathChanged(session, target);
+    }
+
+    private boolean isWrite(FileHandle fileHandle) {
+        return fileHandle.getOpenOptions().contains(StandardOpenOption.WRITE) || fileHandle.getOpenOptions().contains(StandardOpenOption.APPEND);
+    }
+
+    private void fileChanged(ServerSession session, Path file) {
+        DirectoryListingCache cache = ports.get(SftpSessions.getPort(session));
+        if (cache != null) {
+            cache.fileChanged(file);
+        }
+    }
+
+    private void pathChanged(ServerSession session, Path path) {
+        DirectoryListingCache cache = ports.get(SftpSessions.getPort(session));
+        if (cache != null) {
+            cache.pathChanged(path);
+        }
+    }
+}
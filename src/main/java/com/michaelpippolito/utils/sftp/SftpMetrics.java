@@ -0,0 +1,155 @@
+package com.michaelpippolito.utils.sftp;
+
+import com.michaelpippolito.utils.metrics.LatencyHistogram;
+import com.michaelpippolito.utils.metrics.LatencySummary;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.AbstractSftpEventListenerAdapter;
+import org.apache.sshd.server.subsystem.sftp.DirectoryHandle;
+import org.apache.sshd.server.subsystem.sftp.FileHandle;
+import org.apache.sshd.server.subsystem.sftp.Handle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.CopyOption;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Per-port transfer metrics, shared by the SFTP subsystem of every server. Each SFTP channel processes its requests
+    on a single thread, so the start of an operation is kept in a thread local and picked up by its completion event
+ */
+@Component
+public class SftpMetrics extends AbstractSftpEventListenerAdapter {
+    private static final ThreadLocal<long[]> OPERATION_START = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Autowired
+    private SftpListingCaches listingCaches;
+
+    private Map<Integer, PortMetrics> ports = new ConcurrentHashMap<Integer, PortMetrics>();
+
+    public Map<Integer, SftpPortMetrics> getMetrics() {
+        Map<Integer, SftpPortMetrics> metrics = new TreeMap<Integer, SftpPortMetrics>();
+        for (Map.Entry<Integer, PortMetrics> port : ports.entrySet()) {
+            metrics.put(port.getKey(), port.getValue().summarize(listingCaches.get(port.getKey())));
+        }
+        return metrics;
+    }
+
+    public SftpPortMetrics getMetrics(int port) {
+        PortMetrics portMetrics = ports.get(port);
+        return portMetrics == null ? null : portMetrics.summarize(listingCaches.get(port));
+    }
+
+    public void reset(int port) {
+        ports.remove(port);
+    }
+
+    @Override
+    public void opening(ServerSession session, String remoteHandle, Handle localHandle) {
+        startOperation();
+    }
+
+    @Override
+    public void open(ServerSession session, String remoteHandle, Handle localHandle) {
+        endOperation(session, SftpOperation.OPEN, null);
+    }
+
+    @Override
+    public void openFailed(ServerSession session, String remotePath, Path localPath, boolean isDirectory, Throwable thrown) {
+        endOperation(session, SftpOperation.OPEN, thrown);
+    }
+
+    @Override
+    public void reading(ServerSession session, String remoteHandle, FileHandle localHandle, long offset, byte[] data, int dataOffset, int dataLen) {
+        startOperation();
+    }
+
+    @Override
+    public void read(ServerSession session, String remoteHandle, FileHandle localHandle, long offset, byte[] data, int dataOffset, int dataLen, int readLen, Throwable thrown) {
+        PortMetrics portMetrics = endOperation(session, SftpOperation.READ, thrown);
+        if (readLen > 0) {
+            portMetrics.bytesRead.add(readLen);
+        }
+    }
+
+    @Override
+    public void writing(ServerSession session, String remoteHandle, FileHandle localHandle, long offset, byte[] data, int dataOffset, int dataLen) {
+        startOperation();
+    }
+
+    @Override
+    public void written(ServerSession session, String remoteHandle, FileHandle localHandle, long offset, byte[] data, int dataOffset, int dataLen, Throwable thrown) {
+        PortMetrics portMetrics = endOperation(session, SftpOperation.WRITE, thrown);
+        if (thrown == null) {
+            portMetrics.bytesWritten.add(dataLen);
+        }
+    }
+
+    /*
+        The SFTP subsystem only reports a directory read once it has completed, so there is no latency to record
+     */
+    @Override
+    public void read(ServerSession session, String remoteHandle, DirectoryHandle localHandle, Map<String, Path> entries) {
+        getPortMetrics(session).operations.get(SftpOperation.READDIR).recordCount(false);
+    }
+
+    @Override
+    public void moving(ServerSession session, Path srcPath, Path dstPath, Collection<CopyOption> opts) {
+        startOperation();
+    }
+
+    @Override
+    public void moved(ServerSession session, Path srcPath, Path dstPath, Collection<CopyOption> opts, Throwable thrown) {
+        endOperation(session, SftpOperation.RENAME, thrown);
+    }
+
+    @Override
+    public void removing(ServerSession session, Path path, boolean isDirectory) {
+        startOperation();
+    }
+
+    @Override
+    public void removed(ServerSession session, Path path, boolean isDirectory, Throwable thrown) {
+        endOperation(session, SftpOperation.REMOVE, thrown);
+    }
+
+    private void startOperation() {
+        OPERATION_START.get()[0] = System.nanoTime();
+    }
+
+    private PortMetrics endOperation(ServerSession session, SftpOperation operation, Throwable thrown) {
+        long elapsed = System.nanoTime() - OPERATION_START.get()[0];
+        PortMetrics portMetrics = getPortMetrics(session);
+        portMetrics.operations.get(operation).record(elapsed, thrown != null);
+        return portMetrics;
+    }
+
+    private PortMetrics getPortMetrics(ServerSession session) {
+        return ports.computeIfAbsent(SftpSessions.getPort(session), port -> new PortMetrics());
+    }
+
+    private static class PortMetrics {
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final Map<SftpOperation, LatencyHistogram> operations = new EnumMap<SftpOperation, LatencyHistogram>(SftpOperation.class);
+
+        private PortMetrics() {
+            for (SftpOperation operation : SftpOperation.values()) {
+                operations.put(operation, new LatencyHistogram());
+            }
+        }
+
+        private SftpPortMetrics summarize(DirectoryListingCache listingCache) {
+            Map<SftpOperation, LatencySummary> summaries = new EnumMap<SftpOperation, LatencySummary>(SftpOperation.class);
+            for (Map.Entry<SftpOperation, LatencyHistogram> operation : operations.entrySet()) {
+                summaries.put(operation.getKey(), operation.getValue().summarize());
+            }
+            return new SftpPortMetrics(bytesRead.sum(), bytesWritten.sum(), summaries, listingCache == null ? null : listingCache.summarize());
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.michaelpippolito.utils.sftp;
+
+public enum SftpOperation {
+    OPEN, READ, WRITE, READDIR, RENAME, REMOVE
+}
@@ -0,0 +1,26 @@
+package com.michaelpippolito.utils.sftp;
+
+import com.michaelpippolito.utils.metrics.LatencySummary;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+@AllArgsConstructor
+public class SftpPortMetrics {
+    @Getter @Setter
+    private long bytesRead;
+
+    @Getter @Setter
+    private long bytesWritten;
+
+    @Getter @Setter
+    private Map<SftpOperation, LatencySummary> operations;
+
+    /*
+        Unset when the server does not cache directory listings
+     */
+    @Getter @Setter
+    private ListingCacheMetrics listingCache;
+}
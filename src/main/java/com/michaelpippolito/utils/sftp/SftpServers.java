@@ -0,0 +1,35 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.common.keyprovider.KeyPairProvider;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.auth.AsyncAuthException;
+import org.apache.sshd.server.auth.password.PasswordAuthenticator;
+import org.apache.sshd.server.auth.password.PasswordChangeRequiredException;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.SubsystemFactory;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystemFactory;
+
+import java.util.Collections;
+
+public final class SftpServers {
+
+    private SftpServers() {
+    }
+
+    /*
+        An unbound server that only serves SFTP and accepts any user and password. Needs nothing from Spring, so the
+        embedded servers of the test support build theirs the same way SftpHelper does
+     */
+    public static SshServer build(KeyPairProvider hostKeys, SftpSubsystemFactory sftpSubsystemFactory) {
+        SshServer server = SshServer.setUpDefaultServer();
+        server.setKeyPairProvider(hostKeys);
+        server.setSubsystemFactories(Collections.<SubsystemFactory>singletonList(sftpSubsystemFactory));
+        server.setPasswordAuthenticator(new PasswordAuthenticator() {
+            @Override
+            public boolean authenticate(String s, String s1, ServerSession serverSession) throws PasswordChangeRequiredException, AsyncAuthException {
+                return true;
+            }
+        });
+        return server;
+    }
+}
@@ -0,0 +1,20 @@
+package com.michaelpippolito.utils.sftp;
+
+import org.apache.sshd.common.AttributeRepository.AttributeKey;
+import org.apache.sshd.server.session.ServerSession;
+
+import java.net.InetSocketAddress;
+
+public final class SftpSessions {
+    private static final AttributeKey<Integer> PORT = new AttributeKey<Integer>();
+
+    private SftpSessions() {
+    }
+
+    /*
+        The port the session connected to, which identifies its SFTP Server even when servers share listeners
+     */
+    public static int getPort(ServerSession session) {
+        return session.computeAttributeIfAbsent(PORT, key -> ((InetSocketAddress) session.getLocalAddress()).getPort());
+    }
+}
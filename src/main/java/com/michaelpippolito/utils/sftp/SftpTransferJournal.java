@@ -0,0 +1,189 @@
+package com.michaelpippolito.utils.sftp;
+
+import com.michaelpippolito.utils.journal.JournalOperation;
+import com.michaelpippolito.utils.journal.TransferJournal;
+import org.apache.sshd.common.AttributeRepository.AttributeKey;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.subsystem.sftp.AbstractSftpEventListenerAdapter;
+import org.apache.sshd.server.subsystem.sftp.DirectoryHandle;
+import org.apache.sshd.server.subsystem.sftp.FileHandle;
+import org.apache.sshd.server.subsystem.sftp.Handle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+
+/*
+    Feeds the transfer journal from the SFTP subsystem of every server. Reads and writes are added up on their handle
+    and journaled as one transfer when it closes, rather than one record per packet. Like SftpMetrics, the start of an
+    operation is kept in a thread local since each channel processes its requests on a single thread
+ */
+@Component
+public class SftpTransferJournal extends AbstractSftpEventListenerAdapter implements SftpCopyListener {
+    private static final ThreadLocal<long[]> OPERATION_START = ThreadLocal.withInitial(() -> new long[1]);
+    private static final AttributeKey<Transfer> TRANSFER = new AttributeKey<Transfer>();
+
+    @Autowired
+    private TransferJournal transferJournal;
+
+    @Override
+    public void opening(ServerSession session, String remoteHandle, Handle localHandle) {
+        startOperation();
+    }
+
+    @Override
+    public void open(ServerSession session, String remoteHandle, Handle localHandle) {
+        localHandle.setAttribute(TRANSFER, new Transfer(OPERATION_START.get()[0]));
+    }
+
+    @Override
+    public void openFailed(ServerSession session, String remotePath, Path localPath, boolean isDirectory, Throwable thrown) {
+        record(session, isDirectory ? JournalOperation.LIST : JournalOperation.OPEN, localPath == null ? remotePath : localPath.toString(), null, 0, thrown);
+    }
+
+    @Override
+    public void read(ServerSession session, String remoteHandle, FileHandle localHandle, long offset, byte[] data, int dataOffset, int dataLen, int readLen, Throwable thrown) {
+        Transfer transfer = localHandle.getAttribute(TRANSFER);
+        if (transfer != null) {
+            if (readLen > 0) {
+                transfer.bytesRead += readLen;
+            }
+            transfer.failure = thrown == null ? transfer.failure : thrown;
+        }
+    }
+
+    @Override
+    public void written(ServerSession session, String remoteHandle, FileHandle localHandle, long offset, byte[] data, int dataOffset, int dataLen, Throwable thrown) {
+        Transfer transfer = localHandle.getAttribute(TRANSFER);
+        if (transfer != null) {
+            if (thrown == null) {
+                transfer.bytesWritten += dataLen;
+            }
+            transfer.failure = thrown == null ? transfer.failure : thrown;
+        }
+    }
+
+    @Override
+    public void closed(ServerSession session, String remoteHandle, Handle localHandle, Throwable thrown) {
+        recordTransfer(session, localHandle, thrown);
+    }
+
+    /*
+        Handles still open when the channel goes away are closed without a closed event
+     */
+    @Override
+    public void exiting(ServerSession session, Handle localHandle) {
+        recordTransfer(session, localHandle, new IOException("Channel closed with the handle still open"));
+    }
+
+    @Override
+    public void creating(ServerSession session, Path path, Map<String, ?> attrs) {
+        startOperation();
+    }
+
+    @Override
+    public void created(ServerSession session, Path path, Map<String, ?> attrs, Throwable thrown) {
+        record(session, JournalOperation.MKDIR, path.toString(), null, 0, thrown);
+    }
+
+    @Override
+    public void moving(ServerSession session, Path srcPath, Path dstPath, Collection<CopyOption> opts) {
+        startOperation();
+    }
+
+    @Override
+    public void moved(ServerSession session, Path srcPath, Path dstPath, Collection<CopyOption> opts, Throwable thrown) {
+        record(session, JournalOperation.RENAME, srcPath.toString(), dstPath.toString(), 0, thrown);
+    }
+
+    @Override
+    public void removing(ServerSession session, Path path, boolean isDirectory) {
+        startOperation();
+    }
+
+    @Override
+    public void removed(ServerSession session, Path path, boolean isDirectory, Throwable thrown) {
+        record(session, isDirectory ? JournalOperation.RMDIR : JournalOperation.REMOVE, path.toString(), null, 0, thrown);
+    }
+
+    @Override
+    public void copying(ServerSession session, Path source, Path target) {
+        startOperation();
+    }
+
+    @Override
+    public void copied(ServerSession session, Path source, Path target, FileHandle targetHandle, long bytes, Throwable thrown) {
+        record(session, JournalOperation.COPY, source.toString(), target.toString(), bytes, thrown);
+    }
+
+    private void recordTransfer(ServerSession session, Handle localHandle, Throwable thrown) {
+        Transfer transfer = localHandle.removeAttribute(TRANSFER);
+        if (transfer == null) {
+            return;
+        }
+        JournalOperation operation;
+        long bytes;
+        if (localHandle instanceof DirectoryHandle) {
+            operation = JournalOperation.LIST;
+            bytes = 0;
+        } else if (transfer.bytesWritten > 0 || isOpenForWrite((FileHandle) localHandle)) {
+            operation = JournalOperation.UPLOAD;
+            bytes = transfer.bytesWritten;
+        } else if (transfer.bytesRead > 0) {
+            operation = JournalOperation.DOWNLOAD;
+            bytes = transfer.bytesRead;
+        } else {
+            operation = JournalOperation.OPEN;
+            bytes = 0;
+        }
+        transferJournal.record(
+                SftpSessions.getPort(session),
+                session.getIoSession().getId(),
+                session.getUsername(),
+                operation,
+                localHandle.getFile().toString(),
+                null,
+                bytes,
+                System.nanoTime() - transfer.openedNanos,
+                transfer.failure != null ? transfer.failure : thrown
+        );
+    }
+
+    private boolean isOpenForWrite(FileHandle fileHandle) {
+        return fileHandle.getOpenOptions().contains(StandardOpenOption.WRITE) || fileHandle.getOpenOptions().contains(StandardOpenOption.APPEND);
+    }
+
+    private void startOperation() {
+        OPERATION_START.get()[0] = System.nanoTime();
+    }
+
+    private void record(ServerSession session, JournalOperation operation, String path, String targetPath, long bytes, Throwable thrown) {
+        transferJournal.record(
+                SftpSessions.getPort(session),
+                session.getIoSession().getId(),
+                session.getUsername(),
+                operation,
+                path,
+                targetPath,
+                bytes,
+                System.nanoTime() - OPERATION_START.get()[0],
+                thrown
+        );
+    }
+
+    private static class Transfer {
+        private final long openedNanos;
+        private long bytesRead;
+        private long bytesWritten;
+        private Throwable failure;
+
+        private Transfer(long openedNanos) {
+            this.openedNanos = openedNanos;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.michaelpippolito.utils.sftp;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/*
+    Channel and buffer sizes for an SFTP Server. Anything left unset falls back to the next level, i.e. a request
+    falls back to sftp.tuning and sftp.tuning falls back to the Apache SSHD defaults
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class SftpTuning {
+    /*
+        Bytes a peer may send on a channel before waiting for a window adjust
+     */
+    @Getter @Setter
+    private Long windowSize;
+
+    /*
+        Largest channel data packet the server accepts
+     */
+    @Getter @Setter
+    private Long maxPacketSize;
+
+    /*
+        Size of the buffer each connection reads from its socket into
+     */
+    @Getter @Setter
+    private Integer readBufferSize;
+
+    /*
+        Kernel send and receive buffer size for each connection's socket
+     */
+    @Getter @Setter
+    private Integer socketBufferSize;
+
+    /*
+        Largest chunk of file data returned by a single SFTP read
+     */
+    @Getter @Setter
+    private Integer maxReadDataLength;
+}
@@ -0,0 +1,83 @@
+package com.michaelpippolito.utils.sftp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/*
+    Snapshots are hard-link copies of a server's root tree, so taking or restoring one costs a directory walk rather
+    than a byte copy. CopyOnWriteFileSystemAccessor breaks a link before the SFTP Server writes to a linked file, which
+    keeps snapshots intact while the restored tree is modified
+ */
+@Component
+@Slf4j
+public class SnapshotManager {
+
+    public void snapshot(Path root, Path snapshot) throws IOException {
+        delete(snapshot);
+        link(root, snapshot);
+    }
+
+    public void restore(Path snapshot, Path root) throws IOException {
+        if (!Files.isDirectory(snapshot)) {
+            throw new NoSuchFileException(snapshot.toString());
+        }
+        clean(root);
+        link(snapshot, root);
+    }
+
+    private void link(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path targetFile = target.resolve(source.relativize(file).toString());
+                try {
+                    Files.createLink(targetFile, file);
+                } catch (UnsupportedOperationException | FileSystemException e) {
+                    /*
+                        Hard links are not available across devices or on every file system, so fall back to a copy
+                     */
+                    Files.copy(file, targetFile, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void clean(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                if (!dir.equals(root)) {
+                    Files.delete(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void delete(Path path) throws IOException {
+        if (Files.exists(path)) {
+            clean(path);
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.michaelpippolito.utils.sftp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Runs the SFTP subsystems of every server. Apache SSHD serves a channel's requests on a single task that lives as long
+    as the channel, so the thread limit is a limit on channels served at once. Without a queue, channels beyond it are
+    rejected and closed straight away. A queued channel gets no reply until an earlier one closes, so its client hangs
+    until then or until it times out. Idle threads time out so a quiet application holds none. Virtual threads are
+    looked up reflectively since the application is built for Java 8
+ */
+@Slf4j
+public class SubsystemExecutor extends AbstractExecutorService {
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final SubsystemExecutorType type;
+    private final ExecutorService delegate;
+    private final int maxThreads;
+    private final int queueCapacity;
+
+    private final LongAdder activeChannels = new LongAdder();
+    private final LongAdder queuedChannels = new LongAdder();
+    private final LongAdder rejectedChannels = new LongAdder();
+    private final LongAdder completedChannels = new LongAdder();
+
+    public SubsystemExecutor(SubsystemExecutorType type, int maxThreads, int queueCapacity) {
+        ExecutorService virtualThreads = type == SubsystemExecutorType.VIRTUAL ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtualThreads != null) {
+            this.type = SubsystemExecutorType.VIRTUAL;
+            this.delegate = virtualThreads;
+        } else {
+            if (type == SubsystemExecutorType.VIRTUAL) {
+                log.warn("Virtual threads are not available on Java " + System.getProperty("java.version") + " -- falling back to a shared pool of " + maxThreads + " threads");
+            }
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    maxThreads,
+                    maxThreads,
+                    KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS,
+                    queueCapacity > 0 ? new ArrayBlockingQueue<Runnable>(queueCapacity) : new SynchronousQueue<Runnable>(),
+                    new CustomizableThreadFactory("sftp-subsystem-")
+            );
+            pool.allowCoreThreadTimeOut(true);
+            this.type = SubsystemExecutorType.SHARED;
+            this.delegate = pool;
+        }
+        this.maxThreads = maxThreads;
+        this.queueCapacity = Math.max(queueCapacity, 0);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        queuedChannels.increment();
+        try {
+            delegate.execute(() -> {
+                queuedChannels.decrement();
+                activeChannels.increment();
+                try {
+                    command.run();
+                } finally {
+                    activeChannels.decrement();
+                    completedChannels.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queuedChannels.decrement();
+            rejectedChannels.increment();
+            log.warn("Rejected SFTP channel -- " + maxThreads + " channels active and " + queueCapacity + " queued");
+            throw e;
+        }
+    }
+
+    public SubsystemExecutorMetrics summarize() {
+        boolean virtual = type == SubsystemExecutorType.VIRTUAL;
+        return new SubsystemExecutorMetrics(
+                type,
+                virtual ? null : maxThreads,
+                virtual ? null : queueCapacity,
+                virtual ? activeChannels.intValue() : ((ThreadPoolExecutor) delegate).getPoolSize(),
+                activeChannels.sum(),
+                queuedChannels.sum(),
+                rejectedChannels.sum(),
+                completedChannels.sum()
+        );
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.michaelpippolito.utils.sftp;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class SubsystemExecutorMetrics {
+    /*
+        The executor actually in use, which is SHARED when VIRTUAL was configured on a runtime without virtual threads
+     */
+    @Getter @Setter
+    private SubsystemExecutorType type;
+
+    /*
+        Thread and queue limits, null for virtual threads which have neither
+     */
+    @Getter @Setter
+    private Integer maxThreads;
+
+    @Getter @Setter
+    private Integer queueCapacity;
+
+    @Getter @Setter
+    private int threads;
+
+    /*
+        Channels being served, each one holds its thread for as long as it is open
+     */
+    @Getter @Setter
+    private long activeChannels;
+
+    /*
+        Channels opened while every thread was busy, their clients wait for the SFTP version reply until one frees up
+     */
+    @Getter @Setter
+    private long queuedChannels;
+
+    /*
+        Channels refused because every thread was busy and the queue, if there is one, was full
+     */
+    @Getter @Setter
+    private long rejectedChannels;
+
+    @Getter @Setter
+    private long completedChannels;
+}
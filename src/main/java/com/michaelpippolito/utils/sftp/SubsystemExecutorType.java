@@ -0,0 +1,18 @@
+package com.michaelpippolito.utils.sftp;
+
+public enum SubsystemExecutorType {
+    /*
+        A new single thread executor per SFTP channel, the Apache SSHD default
+     */
+    PER_CHANNEL,
+
+    /*
+        One bounded pool shared by every channel of every server
+     */
+    SHARED,
+
+    /*
+        One virtual thread per channel on runtimes that have them, SHARED otherwise
+     */
+    VIRTUAL
+}
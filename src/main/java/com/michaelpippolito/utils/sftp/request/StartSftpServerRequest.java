@@ -1,5 +1,7 @@
 package com.michaelpippolito.utils.sftp.request;
 
+import com.michaelpippolito.utils.sftp.SftpTuning;
+import com.michaelpippolito.utils.sftp.shaping.ShapingProfile;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
@@ -8,9 +10,69 @@ import java.util.List;
 
 @AllArgsConstructor
 public class StartSftpServerRequest {
+    /*
+        0 binds to an ephemeral port picked by the operating system, the response carries the port that was picked
+     */
     @Getter @Setter
     private int port;
 
     @Getter @Setter
     private List<String> directories;
+
+    /*
+        Overrides sftp.inMemory for this server when set
+     */
+    @Getter @Setter
+    private Boolean inMemory;
+
+    /*
+        Overrides sftp.tuning for this server, field by field, when set
+     */
+    @Getter @Setter
+    private SftpTuning tuning;
+
+    /*
+        Name of a profile in sftp.shapingProfiles to emulate network conditions with
+     */
+    @Getter @Setter
+    private String shapingProfile;
+
+    /*
+        Shapes the network on its own or, together with shapingProfile, overrides the named profile field by field
+     */
+    @Getter @Setter
+    private ShapingProfile shaping;
+
+    /*
+        Overrides sftp.listingCache for this server when set
+     */
+    @Getter @Setter
+    private Boolean listingCache;
+
+    /*
+        Local path of a zip or tar archive to extract into the root once the server is up
+     */
+    @Getter @Setter
+    private String seedArchive;
+
+    /*
+        Makes port the start of a range, the server binds to the first port of the range that is free
+     */
+    @Getter @Setter
+    private Integer portRangeEnd;
+
+    public StartSftpServerRequest(int port, List<String> directories) {
+        this(port, directories, null, null, null, null, null, null, null);
+    }
+
+    public StartSftpServerRequest(int port, List<String> directories, Boolean inMemory) {
+        this(port, directories, inMemory, null, null, null, null, null, null);
+    }
+
+    public StartSftpServerRequest(int port, List<String> directories, Boolean inMemory, SftpTuning tuning) {
+        this(port, directories, inMemory, tuning, null, null, null, null, null);
+    }
+
+    public StartSftpServerRequest() {
+    }
 }
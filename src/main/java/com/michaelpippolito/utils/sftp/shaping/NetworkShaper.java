@@ -0,0 +1,89 @@
+package com.michaelpippolito.utils.sftp.shaping;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Shaping state of one SFTP Server: the buckets shared by all of its sessions and its session count
+ */
+public class NetworkShaper {
+    private final ShapingProfile profile;
+    private final ScheduledExecutorService scheduler;
+    private final long heartbeatMillis;
+    private final TokenBucket inbound;
+    private final TokenBucket outbound;
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    public NetworkShaper(ShapingProfile profile, ScheduledExecutorService scheduler, long heartbeatMillis) {
+        this.profile = profile;
+        this.scheduler = scheduler;
+        this.heartbeatMillis = heartbeatMillis;
+        this.inbound = newBucket(profile.getBandwidthBytesPerSecond());
+        this.outbound = newBucket(profile.getBandwidthBytesPerSecond());
+    }
+
+    public ShapingProfile getProfile() {
+        return profile;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public long getHeartbeatMillis() {
+        return heartbeatMillis;
+    }
+
+    public TokenBucket newSessionBucket() {
+        return newBucket(profile.getSessionBandwidthBytesPerSecond());
+    }
+
+    public boolean tryAcquireSession() {
+        if (profile.getMaxSessions() == null) {
+            sessions.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = sessions.get();
+            if (current >= profile.getMaxSessions()) {
+                return false;
+            }
+            if (sessions.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void releaseSession() {
+        sessions.decrementAndGet();
+    }
+
+    public long inboundDueNanos(TokenBucket sessionBucket, long bytes, long nowNanos) {
+        return dueNanos(inbound, sessionBucket, bytes, nowNanos);
+    }
+
+    public long outboundDueNanos(TokenBucket sessionBucket, long bytes, long nowNanos) {
+        return dueNanos(outbound, sessionBucket, bytes, nowNanos);
+    }
+
+    private long dueNanos(TokenBucket serverBucket, TokenBucket sessionBucket, long bytes, long nowNanos) {
+        long dueNanos = nowNanos;
+        if (serverBucket != null) {
+            dueNanos = Math.max(dueNanos, serverBucket.reserve(bytes, nowNanos));
+        }
+        if (sessionBucket != null) {
+            dueNanos = Math.max(dueNanos, sessionBucket.reserve(bytes, nowNanos));
+        }
+        long delayMillis = profile.getLatencyMillis() == null ? 0 : profile.getLatencyMillis();
+        if (profile.getJitterMillis() != null && profile.getJitterMillis() > 0) {
+            delayMillis += ThreadLocalRandom.current().nextLong(profile.getJitterMillis() + 1);
+        }
+        return dueNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
+    private static TokenBucket newBucket(Long bytesPerSecond) {
+        return bytesPerSecond == null ? null : new TokenBucket(bytesPerSecond);
+    }
+}
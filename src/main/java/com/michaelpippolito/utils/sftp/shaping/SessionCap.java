@@ -0,0 +1,73 @@
+package com.michaelpippolito.utils.sftp.shaping;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.sshd.common.AttributeRepository;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.auth.AsyncAuthException;
+import org.apache.sshd.server.auth.password.PasswordAuthenticator;
+import org.apache.sshd.server.auth.password.PasswordChangeRequiredException;
+import org.apache.sshd.server.session.ServerSession;
+
+import java.io.IOException;
+
+/*
+    Counts a session against the session cap of its server only once it has authenticated, so port probes and clients
+    that never get past key exchange cannot take a slot. Sessions over the cap are disconnected instead of
+    authenticated, and the slot is given back as soon as the SSH session closes
+ */
+@Slf4j
+public class SessionCap implements PasswordAuthenticator, SessionListener {
+    private static final AttributeRepository.AttributeKey<Boolean> COUNTED = new AttributeRepository.AttributeKey<Boolean>();
+
+    private final PasswordAuthenticator delegate;
+    private final NetworkShaper shaper;
+
+    private SessionCap(PasswordAuthenticator delegate, NetworkShaper shaper) {
+        this.delegate = delegate;
+        this.shaper = shaper;
+    }
+
+    public static void install(SshServer server, NetworkShaper shaper) {
+        SessionCap cap = new SessionCap(server.getPasswordAuthenticator(), shaper);
+        server.setPasswordAuthenticator(cap);
+        server.addSessionListener(cap);
+    }
+
+    @Override
+    public boolean authenticate(String username, String password, ServerSession session) throws PasswordChangeRequiredException, AsyncAuthException {
+        if (!delegate.authenticate(username, password, session)) {
+            return false;
+        }
+        if (session.getAttribute(COUNTED) != null) {
+            return true;
+        }
+        if (!shaper.tryAcquireSession()) {
+            log.info("Refusing SFTP session from " + session.getClientAddress() + " -- " + shaper.getProfile().getMaxSessions() + " sessions already open");
+            try {
+                session.disconnect(SshConstants.SSH2_DISCONNECT_TOO_MANY_CONNECTIONS, "Too many sessions");
+            } catch (IOException e) {
+                session.close(true);
+            }
+            return false;
+        }
+        session.setAttribute(COUNTED, Boolean.TRUE);
+
+        /*
+            A session that closed while it was authenticating has already been through sessionClosed
+         */
+        if (!session.isOpen()) {
+            sessionClosed(session);
+        }
+        return true;
+    }
+
+    @Override
+    public void sessionClosed(Session session) {
+        if (session.removeAttribute(COUNTED) != null) {
+            shaper.releaseSession();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.michaelpippolito.utils.sftp.shaping;
+
+import org.apache.sshd.common.future.CloseFuture;
+import org.apache.sshd.common.future.DefaultCloseFuture;
+import org.apache.sshd.common.future.SshFutureListener;
+import org.apache.sshd.common.io.AbstractIoWriteFuture;
+import org.apache.sshd.common.io.IoService;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.io.IoWriteFuture;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.helpers.AbstractSession;
+import org.apache.sshd.common.util.buffer.Buffer;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+    The I/O session handed to the SSH layer when shaping is on. Writes pass through the outbound lane, everything else
+    goes straight to the underlying session, including attributes so the SSH session can be looked up from either
+ */
+public class ShapedIoSession implements IoSession {
+    private final IoSession delegate;
+    private final NetworkShaper shaper;
+    private final TokenBucket bucket;
+    private final ShapedLane inbound;
+    private final ShapedLane outbound;
+
+    private ScheduledFuture<?> heartbeat;
+
+    public ShapedIoSession(IoSession delegate, NetworkShaper shaper) {
+        this.delegate = delegate;
+        this.shaper = shaper;
+        this.bucket = shaper.newSessionBucket();
+        this.inbound = new ShapedLane(shaper.getScheduler());
+        this.outbound = new ShapedLane(shaper.getScheduler());
+    }
+
+    public IoSession getDelegate() {
+        return delegate;
+    }
+
+    public long inboundDueNanos(long bytes, long nowNanos) {
+        return shaper.inboundDueNanos(bucket, bytes, nowNanos);
+    }
+
+    public ShapedLane getInbound() {
+        return inbound;
+    }
+
+    /*
+        The acceptor stops reading once the client closes its end but does not close the session, so a client that
+        drops its socket without disconnecting would hold its slot until the server next writes to it. An ignore
+        message every interval makes that write happen, and the failed write closes the session
+     */
+    public synchronized void startHeartbeat(long intervalMillis) {
+        heartbeat = shaper.getScheduler().scheduleWithFixedDelay(this::sendHeartbeat, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopHeartbeat() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+    }
+
+    private void sendHeartbeat() {
+        Session session = AbstractSession.getSession(delegate, true);
+        if (session == null || !session.isOpen()) {
+            return;
+        }
+        try {
+            session.sendIgnoreMessage();
+        } catch (IOException | RuntimeException e) {
+            delegate.close(true);
+        }
+    }
+
+    @Override
+    public IoWriteFuture writePacket(Buffer buffer) throws IOException {
+        long nowNanos = System.nanoTime();
+        long dueNanos = shaper.outboundDueNanos(bucket, buffer.available(), nowNanos);
+        if (outbound.runsInline(dueNanos, nowNanos)) {
+            return delegate.writePacket(buffer);
+        }
+
+        ShapedWriteFuture future = new ShapedWriteFuture(delegate);
+        outbound.offer(dueNanos, () -> {
+            try {
+                delegate.writePacket(buffer).addListener(written -> future.setValue(written.isWritten() ? Boolean.TRUE : written.getException()));
+            } catch (IOException | RuntimeException e) {
+                future.setValue(e);
+            }
+        });
+        return future;
+    }
+
+    /*
+        A graceful close waits for the writes still queued in the outbound lane
+     */
+    @Override
+    public CloseFuture close(boolean immediately) {
+        if (immediately) {
+            return delegate.close(true);
+        }
+        DefaultCloseFuture future = new DefaultCloseFuture(delegate, null);
+        outbound.offer(0, () -> delegate.close(false).addListener(closed -> future.setClosed()));
+        return future;
+    }
+
+    @Override
+    public long getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public SocketAddress getAcceptanceAddress() {
+        return delegate.getAcceptanceAddress();
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return delegate.getRemoteAddress();
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return delegate.getLocalAddress();
+    }
+
+    @Override
+    public Object getAttribute(Object key) {
+        return delegate.getAttribute(key);
+    }
+
+    @Override
+    public Object setAttribute(Object key, Object value) {
+        return delegate.setAttribute(key, value);
+    }
+
+    @Override
+    public Object setAttributeIfAbsent(Object key, Object value) {
+        return delegate.setAttributeIfAbsent(key, value);
+    }
+
+    @Override
+    public Object removeAttribute(Object key) {
+        return delegate.removeAttribute(key);
+    }
+
+    @Override
+    public IoService getService() {
+        return delegate.getService();
+    }
+
+    @Override
+    public void shutdownOutputStream() throws IOException {
+        delegate.shutdownOutputStream();
+    }
+
+    @Override
+    public void addCloseFutureListener(SshFutureListener<CloseFuture> listener) {
+        delegate.addCloseFutureListener(listener);
+    }
+
+    @Override
+    public void removeCloseFutureListener(SshFutureListener<CloseFuture> listener) {
+        delegate.removeCloseFutureListener(listener);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public boolean isClosing() {
+        return delegate.isClosing();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + delegate + "]";
+    }
+
+    private static class ShapedWriteFuture extends AbstractIoWriteFuture {
+        private ShapedWriteFuture(Object id) {
+            super(id, null);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.michaelpippolito.utils.sftp.shaping;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Delivers one direction of one session in order, each action no earlier than its due time. Only one drain is ever
+    scheduled per lane, so a session waiting on its bucket holds a queued task rather than a thread
+ */
+@Slf4j
+public class ShapedLane {
+    private final ScheduledExecutorService scheduler;
+    private final Queue<Entry> entries = new ArrayDeque<Entry>();
+
+    private boolean draining;
+    private long lastDueNanos;
+
+    public ShapedLane(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /*
+        Whether the caller may run its action straight away on its own thread, i.e. it is already due and nothing is
+        queued ahead of it. Otherwise the action must be handed over with offer
+     */
+    public synchronized boolean runsInline(long dueNanos, long nowNanos) {
+        if (draining || !entries.isEmpty() || dueNanos > nowNanos) {
+            return false;
+        }
+        lastDueNanos = Math.max(lastDueNanos, dueNanos);
+        return true;
+    }
+
+    public void offer(long dueNanos, Runnable action) {
+        synchronized (this) {
+            lastDueNanos = Math.max(lastDueNanos, dueNanos);
+            entries.add(new Entry(lastDueNanos, action));
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        schedule(dueNanos - System.nanoTime());
+    }
+
+    private void schedule(long delayNanos) {
+        scheduler.schedule(this::drain, Math.max(delayNanos, 0), TimeUnit.NANOSECONDS);
+    }
+
+    private void drain() {
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = entries.peek();
+                if (entry == null) {
+                    draining = false;
+                    return;
+                }
+                long delayNanos = entry.dueNanos - System.nanoTime();
+                if (delayNanos > 0) {
+                    schedule(delayNanos);
+                    return;
+                }
+                entries.poll();
+            }
+            try {
+                entry.action.run();
+            } catch (RuntimeException e) {
+                log.error("Failed delivering shaped packet -- " + ExceptionUtils.getStackTrace(e));
+            }
+        }
+    }
+
+    private static class Entry {
+        private final long dueNanos;
+        private final Runnable action;
+
+        private Entry(long dueNanos, Runnable action) {
+            this.dueNanos = dueNanos;
+            this.action = action;
+        }
+    }
+}
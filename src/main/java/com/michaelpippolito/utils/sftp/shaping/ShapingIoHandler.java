@@ -0,0 +1,82 @@
+package com.michaelpippolito.utils.sftp.shaping;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.sshd.common.io.IoHandler;
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.util.Readable;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+
+/*
+    Sits between the acceptor and the SSH layer. Received bytes are held back in the inbound lane until they are due.
+    The acceptor reuses its read buffer, so held back bytes are copied first
+ */
+@Slf4j
+public class ShapingIoHandler implements IoHandler {
+    private static final Object SHAPED_SESSION = ShapedIoSession.class;
+
+    private final IoHandler delegate;
+    private final NetworkShaper shaper;
+
+    public ShapingIoHandler(IoHandler delegate, NetworkShaper shaper) {
+        this.delegate = delegate;
+        this.shaper = shaper;
+    }
+
+    @Override
+    public void sessionCreated(IoSession session) throws Exception {
+        ShapedIoSession shapedSession = new ShapedIoSession(session, shaper);
+        session.setAttribute(SHAPED_SESSION, shapedSession);
+        delegate.sessionCreated(shapedSession);
+        if (shaper.getProfile().getMaxSessions() != null) {
+            shapedSession.startHeartbeat(shaper.getHeartbeatMillis());
+        }
+    }
+
+    @Override
+    public void sessionClosed(IoSession session) throws Exception {
+        ShapedIoSession shapedSession = (ShapedIoSession) session.removeAttribute(SHAPED_SESSION);
+        if (shapedSession != null) {
+            shapedSession.stopHeartbeat();
+            delegate.sessionClosed(shapedSession);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(IoSession session, Throwable cause) throws Exception {
+        ShapedIoSession shapedSession = (ShapedIoSession) session.getAttribute(SHAPED_SESSION);
+        if (shapedSession != null) {
+            delegate.exceptionCaught(shapedSession, cause);
+        }
+    }
+
+    @Override
+    public void messageReceived(IoSession session, Readable message) throws Exception {
+        ShapedIoSession shapedSession = (ShapedIoSession) session.getAttribute(SHAPED_SESSION);
+        if (shapedSession == null) {
+            return;
+        }
+
+        long nowNanos = System.nanoTime();
+        long dueNanos = shapedSession.inboundDueNanos(message.available(), nowNanos);
+        if (shapedSession.getInbound().runsInline(dueNanos, nowNanos)) {
+            delegate.messageReceived(shapedSession, message);
+            return;
+        }
+
+        byte[] bytes = new byte[message.available()];
+        message.getRawBytes(bytes, 0, bytes.length);
+        shapedSession.getInbound().offer(dueNanos, () -> {
+            try {
+                delegate.messageReceived(shapedSession, new ByteArrayBuffer(bytes));
+            } catch (Throwable e) {
+                try {
+                    delegate.exceptionCaught(shapedSession, e);
+                } catch (Throwable t) {
+                    log.error("Failed handling shaped packet -- " + ExceptionUtils.getStackTrace(t));
+                    session.close(true);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.michaelpippolito.utils.sftp.shaping;
+
+import org.apache.sshd.common.Factory;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.future.CloseFuture;
+import org.apache.sshd.common.future.SshFutureListener;
+import org.apache.sshd.common.io.IoAcceptor;
+import org.apache.sshd.common.io.IoConnector;
+import org.apache.sshd.common.io.IoHandler;
+import org.apache.sshd.common.io.IoServiceEventListener;
+import org.apache.sshd.common.io.IoServiceFactory;
+import org.apache.sshd.common.io.IoServiceFactoryFactory;
+import org.apache.sshd.common.util.threads.CloseableExecutorService;
+
+/*
+    Wraps the I/O service factory of an SFTP Server so that every accepted session is shaped
+ */
+public class ShapingIoServiceFactoryFactory implements IoServiceFactoryFactory {
+    private final IoServiceFactoryFactory delegate;
+    private final NetworkShaper shaper;
+
+    public ShapingIoServiceFactoryFactory(IoServiceFactoryFactory delegate, NetworkShaper shaper) {
+        this.delegate = delegate;
+        this.shaper = shaper;
+    }
+
+    public NetworkShaper getShaper() {
+        return shaper;
+    }
+
+    @Override
+    public IoServiceFactory create(FactoryManager manager) {
+        return new ShapingIoServiceFactory(delegate.create(manager));
+    }
+
+    @Override
+    public void setExecutorServiceFactory(Factory<CloseableExecutorService> factory) {
+        delegate.setExecutorServiceFactory(factory);
+    }
+
+    private class ShapingIoServiceFactory implements IoServiceFactory {
+        private final IoServiceFactory delegate;
+
+        private ShapingIoServiceFactory(IoServiceFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public IoConnector createConnector(IoHandler handler) {
+            return delegate.createConnector(handler);
+        }
+
+        @Override
+        public IoAcceptor createAcceptor(IoHandler handler) {
+            return delegate.createAcceptor(new ShapingIoHandler(handler, shaper));
+        }
+
+        @Override
+        public IoServiceEventListener getIoServiceEventListener() {
+            return delegate.getIoServiceEventListener();
+        }
+
+        @Override
+        public void setIoServiceEventListener(IoServiceEventListener listener) {
+            delegate.setIoServiceEventListener(listener);
+        }
+
+        @Override
+        public CloseFuture close(boolean immediately) {
+            return delegate.close(immediately);
+        }
+
+        @Override
+        public void addCloseFutureListener(SshFutureListener<CloseFuture> listener) {
+            delegate.addCloseFutureListener(listener);
+        }
+
+        @Override
+        public void removeCloseFutureListener(SshFutureListener<CloseFuture> listener) {
+            delegate.removeCloseFutureListener(listener);
+        }
+
+        @Override
+        public boolean isClosed() {
+            return delegate.isClosed();
+        }
+
+        @Override
+        public boolean isClosing() {
+            return delegate.isClosing();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.michaelpippolito.utils.sftp.shaping;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/*
+    Emulated network conditions for an SFTP Server. Anything left unset is not shaped
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShapingProfile {
+    /*
+        Bytes per second in each direction, shared by every session of the server like a single link
+     */
+    @Getter @Setter
+    private Long bandwidthBytesPerSecond;
+
+    /*
+        Bytes per second in each direction for every session on its own
+     */
+    @Getter @Setter
+    private Long sessionBandwidthBytesPerSecond;
+
+    /*
+        Added to every packet in each direction, so a round trip gains twice this
+     */
+    @Getter @Setter
+    private Long latencyMillis;
+
+    /*
+        Random extra latency of up to this much per packet. Packets are never reordered
+     */
+    @Getter @Setter
+    private Long jitterMillis;
+
+    /*
+        Sessions beyond this many authenticated ones are refused and disconnected at authentication. Connections that
+        have not authenticated yet do not count
+     */
+    @Getter @Setter
+    private Integer maxSessions;
+}
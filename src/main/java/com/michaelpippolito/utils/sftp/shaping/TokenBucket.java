@@ -0,0 +1,30 @@
+package com.michaelpippolito.utils.sftp.shaping;
+
+/*
+    Token bucket kept as the time at which the bucket is next empty, so reserving bytes is a couple of arithmetic
+    operations and never blocks. Callers wait until the returned time instead of being refused, and up to the burst can
+    pass immediately after an idle period
+ */
+public class TokenBucket {
+    private static final long MIN_BURST_BYTES = 64 * 1024;
+
+    private final double nanosPerByte;
+    private final long burstNanos;
+
+    private long emptyAtNanos;
+
+    public TokenBucket(long bytesPerSecond) {
+        this.nanosPerByte = 1e9 / bytesPerSecond;
+        this.burstNanos = (long) (Math.max(bytesPerSecond / 100, MIN_BURST_BYTES) * nanosPerByte);
+        this.emptyAtNanos = System.nanoTime();
+    }
+
+    /*
+        Returns the time at which the bytes may pass
+     */
+    public synchronized long reserve(long bytes, long nowNanos) {
+        long passAtNanos = Math.max(nowNanos, emptyAtNanos - burstNanos);
+        emptyAtNanos = Math.max(emptyAtNanos, nowNanos) + (long) (bytes * nanosPerByte);
+        return passAtNanos;
+    }
+}
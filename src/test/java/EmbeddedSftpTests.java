@@ -0,0 +1,112 @@
+import com.michaelpippolito.utils.sftp.embedded.EmbeddedSftpExtension;
+import com.michaelpippolito.utils.sftp.embedded.EmbeddedSftpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.keyverifier.AcceptAllServerKeyVerifier;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.client.subsystem.sftp.SftpClient;
+import org.apache.sshd.client.subsystem.sftp.SftpClientFactory;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+@ExtendWith(EmbeddedSftpExtension.class)
+@Execution(ExecutionMode.CONCURRENT)
+@Slf4j
+public class EmbeddedSftpTests {
+    private static final Set<Path> ROOTS = ConcurrentHashMap.newKeySet();
+
+    private static SshClient client;
+
+    @BeforeAll
+    public static void startClient() {
+        client = SshClient.setUpDefaultClient();
+        client.setServerKeyVerifier(AcceptAllServerKeyVerifier.INSTANCE);
+        client.start();
+    }
+
+    @AfterAll
+    public static void stopClient() throws IOException {
+        client.stop();
+    }
+
+    @RepeatedTest(8)
+    public void isolatedServerTests(RepetitionInfo repetition, EmbeddedSftpServer sftp) throws IOException {
+        /*
+            Case 1: Verify when tests run concurrently that each is given its own running SFTP Server with an empty
+            root nobody else uses
+         */
+        log.info("Case 1: Verify when tests run concurrently that each is given its own running SFTP Server with an empty root nobody else uses");
+        assertThat(ROOTS.add(sftp.getRoot())).isTrue();
+        assertThat(sftp.getPort()).isGreaterThan(0);
+        assertThat(Files.list(sftp.getRoot())).isEmpty();
+
+        /*
+            Case 2: Verify files uploaded by a test land in its own root only
+         */
+        log.info("Case 2: Verify files uploaded by a test land in its own root only");
+        String contents = "repetition " + repetition.getCurrentRepetition();
+        upload(sftp, "/upload.txt", contents);
+        assertThat(new String(Files.readAllBytes(sftp.resolve("/upload.txt")), StandardCharsets.UTF_8)).isEqualTo(contents);
+        assertThat(Files.list(sftp.getRoot())).hasSize(1);
+    }
+
+    @Test
+    public void closeTests() throws IOException {
+        /*
+            Case 1: Verify when an embedded SFTP Server is closed that its port is released and its root is deleted
+         */
+        log.info("Case 1: Verify when an embedded SFTP Server is closed that its port is released and its root is deleted");
+        EmbeddedSftpServer sftp = EmbeddedSftpServer.start();
+        upload(sftp, "/upload.txt", "closing");
+        sftp.close();
+        assertThat(Files.exists(sftp.getRoot())).isFalse();
+        Assertions.assertThrows(IOException.class, () -> new Socket(sftp.getHost(), sftp.getPort()).close());
+    }
+
+    @Nested
+    @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+    public class SharedServerTests {
+        private EmbeddedSftpServer shared;
+
+        @BeforeAll
+        public void seed(EmbeddedSftpServer sftp) throws IOException {
+            shared = sftp;
+            upload(sftp, "/seeded.txt", "seeded");
+        }
+
+        @RepeatedTest(4)
+        public void sharedServerTests(EmbeddedSftpServer sftp) {
+            /*
+                Case 1: Verify when a server is taken by a @BeforeAll method that every test of the class is handed
+                that same server
+             */
+            log.info("Case 1: Verify when a server is taken by a @BeforeAll method that every test of the class is handed that same server");
+            assertThat(sftp).isSameAs(shared);
+            assertThat(Files.exists(sftp.resolve("/seeded.txt"))).isTrue();
+        }
+    }
+
+    private static void upload(EmbeddedSftpServer sftp, String path, String contents) throws IOException {
+        try (ClientSession session = client.connect("test", sftp.getHost(), sftp.getPort()).verify(10000).getSession()) {
+            session.addPasswordIdentity("test");
+            session.auth().verify(10000);
+            try (SftpClient sftpClient = SftpClientFactory.instance().createSftpClient(session);
+                 OutputStream out = sftpClient.write(path)) {
+                out.write(contents.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
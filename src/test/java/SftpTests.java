@@ -1,17 +1,74 @@
 import com.jcraft.jsch.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.michaelpippolito.utils.LocalUtiltiesApplication;
+import com.michaelpippolito.utils.events.FileEvent;
+import com.michaelpippolito.utils.events.FileEventType;
+import com.michaelpippolito.utils.health.ServerHealth;
+import com.michaelpippolito.utils.journal.JournalOperation;
+import com.michaelpippolito.utils.journal.JournalRecord;
+import com.michaelpippolito.utils.journal.JournalRingBuffer;
+import com.michaelpippolito.utils.health.ThreadCountResponse;
+import com.michaelpippolito.utils.loadtest.LoadTestJob;
+import com.michaelpippolito.utils.loadtest.LoadTestOperation;
+import com.michaelpippolito.utils.loadtest.LoadTestRequest;
+import com.michaelpippolito.utils.loadtest.LoadTestResponse;
+import com.michaelpippolito.utils.metrics.LatencyHistogram;
+import com.michaelpippolito.utils.metrics.LatencySummary;
+import com.michaelpippolito.utils.server.BatchServerCommandResponse;
+import com.michaelpippolito.utils.server.ServerCommandJob;
+import com.michaelpippolito.utils.server.ServerCommandJobStatus;
 import com.michaelpippolito.utils.server.ServerCommandResponse;
 import com.michaelpippolito.utils.server.ServerCommandStatus;
+import com.michaelpippolito.utils.server.ServerManager;
 import com.michaelpippolito.utils.server.ServerStatus;
 import com.michaelpippolito.utils.server.ServerType;
+import com.michaelpippolito.utils.sftp.ExtendedSftpSubsystemFactory;
+import com.michaelpippolito.utils.sftp.FileChecksum;
+import com.michaelpippolito.utils.sftp.MappedFileChannel;
+import com.michaelpippolito.utils.sftp.SeedSftpServerResponse;
+import com.michaelpippolito.utils.sftp.SftpChecksums;
 import com.michaelpippolito.utils.sftp.SftpConfig;
 import com.michaelpippolito.utils.sftp.SftpHelper;
+import com.michaelpippolito.utils.sftp.SftpOperation;
+import com.michaelpippolito.utils.sftp.SftpPortMetrics;
+import com.michaelpippolito.utils.sftp.SftpServers;
+import com.michaelpippolito.utils.sftp.SftpTuning;
+import com.michaelpippolito.utils.sftp.SubsystemExecutor;
+import com.michaelpippolito.utils.sftp.SubsystemExecutorMetrics;
+import com.michaelpippolito.utils.sftp.SubsystemExecutorType;
 import com.michaelpippolito.utils.sftp.request.StartSftpServerRequest;
 import com.michaelpippolito.utils.sftp.request.StopSftpServerRequest;
+import com.michaelpippolito.utils.sftp.shaping.ShapingProfile;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.keyverifier.AcceptAllServerKeyVerifier;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.client.subsystem.sftp.SftpClient;
+import org.apache.sshd.client.subsystem.sftp.SftpClientFactory;
+import org.apache.sshd.client.subsystem.sftp.extensions.CheckFileNameExtension;
+import org.apache.sshd.client.subsystem.sftp.extensions.CopyDataExtension;
+import org.apache.sshd.client.subsystem.sftp.extensions.CopyFileExtension;
+import org.apache.sshd.client.subsystem.sftp.extensions.MD5FileExtension;
+import org.apache.sshd.client.subsystem.sftp.extensions.SpaceAvailableExtension;
+import org.apache.sshd.client.subsystem.sftp.extensions.openssh.OpenSSHStatExtensionInfo;
+import org.apache.sshd.client.subsystem.sftp.extensions.openssh.OpenSSHStatHandleExtension;
+import org.apache.sshd.client.subsystem.sftp.extensions.openssh.OpenSSHStatPathExtension;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.subsystem.sftp.extensions.SpaceAvailableExtensionInfo;
+import org.apache.sshd.common.util.buffer.BufferUtils;
+import org.apache.sshd.common.util.threads.NoCloseExecutor;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.subsystem.sftp.AbstractSftpSubsystemHelper;
+import org.apache.sshd.server.subsystem.sftp.SftpSubsystemFactory;
+import org.assertj.core.data.Offset;
 import org.junit.After;
 import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
@@ -21,17 +78,35 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.util.SocketUtils;
 
 import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest(classes = LocalUtiltiesApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(
+        classes = LocalUtiltiesApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"health.probeIntervalMillis=200", "sftp.mappedReadThresholdBytes=1048576", "journal.enabled=true", "journal.directory=target/journal"}
+)
 @Slf4j
 public class SftpTests {
 
@@ -50,6 +125,12 @@ public class SftpTests {
     @Autowired
     private SftpConfig sftpConfig;
 
+    @Autowired
+    private ServerManager serverManager;
+
+    @Autowired
+    private SftpChecksums sftpChecksums;
+
     @After
     public void cleanupTests() throws IOException {
         sftpHelper.stopAllSftpServers();
@@ -282,6 +363,1459 @@ public class SftpTests {
 
     }
 
+    @Test
+    public void batchStartStopTests() {
+        String startUrl = "http://localhost:" + port + "/sftp/start/batch";
+        String stopUrl = "http://localhost:" + port + "/sftp/stop/batch";
+
+        /*
+            Case 1: Verify when a batch of valid ports is sent that every SFTP Server is started and a successful
+            response is received for each port
+         */
+        log.info("Case 1: Verify when a batch of valid ports is sent that every SFTP Server is started and a successful response is received for each port");
+        List<StartSftpServerRequest> case1Requests = Arrays.asList(
+                new StartSftpServerRequest(SocketUtils.findAvailableTcpPort(), Collections.singletonList("a")),
+                new StartSftpServerRequest(SocketUtils.findAvailableTcpPort(), null),
+                new StartSftpServerRequest(SocketUtils.findAvailableTcpPort(), Collections.emptyList())
+        );
+        BatchServerCommandResponse case1Response = restTemplate.postForObject(startUrl, case1Requests, BatchServerCommandResponse.class);
+        assertThat(case1Response.getCommandStatus()).isEqualTo(ServerCommandStatus.SUCCESS);
+        assertThat(case1Response.getResponses()).hasSize(case1Requests.size());
+        for (int i = 0; i < case1Requests.size(); i++) {
+            StartSftpServerRequest request = case1Requests.get(i);
+            verifyServerCommandResponse(
+                    case1Response.getResponses().get(i),
+                    ServerCommandStatus.SUCCESS,
+                    ServerStatus.UP,
+                    ServerType.SFTP
+            );
+            assertThat(case1Response.getResponses().get(i).getPort()).isEqualTo(request.getPort());
+            verifySftpServer(request.getPort(), request.getDirectories());
+        }
+
+        /*
+            Case 2: Verify when a batch containing a port occupied by something other than an SFTP Server is sent that
+            the other ports are still stopped and the failure is reported for that port only
+         */
+        log.info("Case 2: Verify when a batch containing a port occupied by something other than an SFTP Server is sent that the other ports are still stopped and the failure is reported for that port only");
+        List<StopSftpServerRequest> case2Requests = new ArrayList<>();
+        for (StartSftpServerRequest request : case1Requests) {
+            case2Requests.add(new StopSftpServerRequest(request.getPort()));
+        }
+        case2Requests.add(new StopSftpServerRequest(port));
+        BatchServerCommandResponse case2Response = restTemplate.postForObject(stopUrl, case2Requests, BatchServerCommandResponse.class);
+        assertThat(case2Response.getCommandStatus()).isEqualTo(ServerCommandStatus.FAILED);
+        for (int i = 0; i < case1Requests.size(); i++) {
+            verifyServerCommandResponse(
+                    case2Response.getResponses().get(i),
+                    ServerCommandStatus.SUCCESS,
+                    ServerStatus.DOWN,
+                    ServerType.SFTP
+            );
+        }
+        verifyServerCommandResponse(
+                case2Response.getResponses().get(case1Requests.size()),
+                ServerCommandStatus.FAILED,
+                ServerStatus.UP,
+                ServerType.APPLICATION
+        );
+
+        /*
+            Case 3: Verify when a batch asks for two ephemeral ports that both SFTP Servers are started on different
+            ports and each response reports the port it bound
+         */
+        log.info("Case 3: Verify when a batch asks for two ephemeral ports that both SFTP Servers are started on different ports and each response reports the port it bound");
+        List<StartSftpServerRequest> case3Requests = Arrays.asList(
+                new StartSftpServerRequest(0, null),
+                new StartSftpServerRequest(0, null)
+        );
+        BatchServerCommandResponse case3Response = restTemplate.postForObject(startUrl, case3Requests, BatchServerCommandResponse.class);
+        assertThat(case3Response.getCommandStatus()).isEqualTo(ServerCommandStatus.SUCCESS);
+        assertThat(case3Response.getResponses()).hasSize(case3Requests.size());
+        assertThat(case3Response.getRequestMillis()).hasSize(case3Requests.size());
+        List<StopSftpServerRequest> case3StopRequests = new ArrayList<>();
+        for (ServerCommandResponse response : case3Response.getResponses()) {
+            verifyServerCommandResponse(response, ServerCommandStatus.SUCCESS, ServerStatus.UP, ServerType.SFTP);
+            assertThat(response.getPort()).isNotNull().isNotZero();
+            verifySftpServer(response.getPort());
+            case3StopRequests.add(new StopSftpServerRequest(response.getPort()));
+        }
+        assertThat(case3Response.getResponses().get(0).getPort()).isNotEqualTo(case3Response.getResponses().get(1).getPort());
+        BatchServerCommandResponse case3StopResponse = restTemplate.postForObject(stopUrl, case3StopRequests, BatchServerCommandResponse.class);
+        assertThat(case3StopResponse.getCommandStatus()).isEqualTo(ServerCommandStatus.SUCCESS);
+    }
+
+    @Test
+    public void standbyServerTests() throws InterruptedException {
+        /*
+            Case 1: Verify when more SFTP Servers are started than are kept on standby that every server starts and the
+            standby pool is refilled
+         */
+        log.info("Case 1: Verify when more SFTP Servers are started than are kept on standby that every server starts and the standby pool is refilled");
+        for (int i = 0; i <= sftpConfig.getStandbyServers(); i++) {
+            int sftpPort = SocketUtils.findAvailableTcpPort();
+            verifyServerCommandResponse(
+                    sftpHelper.startSftpServer(sftpPort),
+                    ServerCommandStatus.SUCCESS,
+                    ServerStatus.UP,
+                    ServerType.SFTP
+            );
+            verifySftpServer(sftpPort);
+        }
+        for (int i = 0; i < 50 && sftpHelper.getStandbyServerCount() < sftpConfig.getStandbyServers(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(sftpHelper.getStandbyServerCount()).isEqualTo(sftpConfig.getStandbyServers());
+    }
+
+    @Test
+    public void inMemoryTests() throws JSchException, SftpException {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String resetUrl = "http://localhost:" + port + "/sftp/reset";
+
+        /*
+            Case 1: Verify when an in-memory server is requested with a directories list that an SFTP Server is started,
+            all directories are created, and nothing is written to the local directory
+         */
+        log.info("Case 1: Verify when an in-memory server is requested with a directories list that an SFTP Server is started, all directories are created, and nothing is written to the local directory");
+        int case1Port = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest case1Request = new StartSftpServerRequest(case1Port, Arrays.asList("1", "2/2_1"), true);
+        verifyServerCommandResponse(
+                restTemplate.postForObject(startUrl, case1Request, ServerCommandResponse.class),
+                ServerCommandStatus.SUCCESS,
+                ServerStatus.UP,
+                ServerType.SFTP
+        );
+        verifySftpServer(case1Port, case1Request.getDirectories());
+        assertThat(new File(sftpConfig.getLocalDir()).list()).isEmpty();
+
+        /*
+            Case 2: Verify when an in-memory server is reset that a successful response is received and its files are
+            gone
+         */
+        log.info("Case 2: Verify when an in-memory server is reset that a successful response is received and its files are gone");
+        Session session = new JSch().getSession("test", "localhost", case1Port);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        channelSftp.put(new ByteArrayInputStream("before reset".getBytes()), "before_reset.txt");
+        session.disconnect();
+        verifyServerCommandResponse(
+                restTemplate.postForObject(resetUrl + "/" + case1Port, null, ServerCommandResponse.class),
+                ServerCommandStatus.SUCCESS,
+                ServerStatus.UP,
+                ServerType.SFTP
+        );
+        session = new JSch().getSession("test", "localhost", case1Port);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        assertThat(channelSftp.ls("*.txt")).isEmpty();
+        session.disconnect();
+
+        /*
+            Case 3: Verify when a server backed by the local directory is reset that a failure response is received
+         */
+        log.info("Case 3: Verify when a server backed by the local directory is reset that a failure response is received");
+        int case3Port = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl, new StartSftpServerRequest(case3Port, null, false), ServerCommandResponse.class);
+        verifyServerCommandResponse(
+                restTemplate.postForObject(resetUrl + "/" + case3Port, null, ServerCommandResponse.class),
+                ServerCommandStatus.FAILED,
+                ServerStatus.UP,
+                ServerType.SFTP
+        );
+    }
+
+    @Test
+    public void snapshotTests() throws JSchException, SftpException, IOException {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String snapshotUrl = "http://localhost:" + port + "/sftp/snapshot";
+        String restoreUrl = "http://localhost:" + port + "/sftp/restore";
+
+        for (boolean inMemory : Arrays.asList(false, true)) {
+            int sftpPort = SocketUtils.findAvailableTcpPort();
+            restTemplate.postForObject(startUrl, new StartSftpServerRequest(sftpPort, Collections.singletonList("fixtures"), inMemory), ServerCommandResponse.class);
+            Session session = new JSch().getSession("test", "localhost", sftpPort);
+            session.setConfig("StrictHostKeyChecking", "no");
+            session.connect();
+            ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+            channelSftp.connect();
+            channelSftp.put(new ByteArrayInputStream("original".getBytes()), "fixtures/fixture.txt");
+
+            /*
+                Case 1: Verify when a snapshot is taken of a running server that a successful response is received
+             */
+            log.info("Case 1: Verify when a snapshot is taken of a running server that a successful response is received (inMemory={})", inMemory);
+            verifyServerCommandResponse(
+                    restTemplate.postForObject(snapshotUrl + "/" + sftpPort, null, ServerCommandResponse.class),
+                    ServerCommandStatus.SUCCESS,
+                    ServerStatus.UP,
+                    ServerType.SFTP
+            );
+
+            /*
+                Case 2: Verify when files are modified, added, and removed after a snapshot that restoring it brings back
+                the original tree
+             */
+            log.info("Case 2: Verify when files are modified, added, and removed after a snapshot that restoring it brings back the original tree (inMemory={})", inMemory);
+            channelSftp.put(new ByteArrayInputStream("modified".getBytes()), "fixtures/fixture.txt");
+            channelSftp.put(new ByteArrayInputStream("added".getBytes()), "added.txt");
+            verifyServerCommandResponse(
+                    restTemplate.postForObject(restoreUrl + "/" + sftpPort, null, ServerCommandResponse.class),
+                    ServerCommandStatus.SUCCESS,
+                    ServerStatus.UP,
+                    ServerType.SFTP
+            );
+            assertThat(readFromInputStream(channelSftp.get("fixtures/fixture.txt"))).isEqualTo("original\n");
+            assertThat(channelSftp.ls("*.txt")).isEmpty();
+
+            /*
+                Case 3: Verify when a restored file is modified that the snapshot is unaffected
+             */
+            log.info("Case 3: Verify when a restored file is modified that the snapshot is unaffected (inMemory={})", inMemory);
+            channelSftp.put(new ByteArrayInputStream("modified".getBytes()), "fixtures/fixture.txt");
+            restTemplate.postForObject(restoreUrl + "/" + sftpPort, null, ServerCommandResponse.class);
+            assertThat(readFromInputStream(channelSftp.get("fixtures/fixture.txt"))).isEqualTo("original\n");
+
+            /*
+                Case 4: Verify when the size, times, and permissions of a restored file are changed that restoring again
+                brings back its original content and attributes
+             */
+            log.info("Case 4: Verify when the size, times, and permissions of a restored file are changed that restoring again brings back its original content and attributes (inMemory={})", inMemory);
+            SftpATTRS case4Original = channelSftp.stat("fixtures/fixture.txt");
+            channelSftp.setMtime("fixtures/fixture.txt", case4Original.getMTime() - 3600);
+            channelSftp.chmod(0600, "fixtures/fixture.txt");
+            restTemplate.postForObject(restoreUrl + "/" + sftpPort, null, ServerCommandResponse.class);
+            SftpATTRS case4Restored = channelSftp.stat("fixtures/fixture.txt");
+            assertThat(case4Restored.getMTime()).isEqualTo(case4Original.getMTime());
+            assertThat(case4Restored.getPermissions()).isEqualTo(case4Original.getPermissions());
+            SshClient case4Client = SshClient.setUpDefaultClient();
+            case4Client.setServerKeyVerifier(AcceptAllServerKeyVerifier.INSTANCE);
+            case4Client.start();
+            try (ClientSession clientSession = case4Client.connect("test", "localhost", sftpPort).verify(10000).getSession()) {
+                clientSession.addPasswordIdentity("test");
+                clientSession.auth().verify(10000);
+                try (SftpClient sftpClient = SftpClientFactory.instance().createSftpClient(clientSession)) {
+                    sftpClient.setStat("fixtures/fixture.txt", new SftpClient.Attributes().size(3));
+                }
+            } finally {
+                case4Client.stop();
+            }
+            assertThat(readFromInputStream(channelSftp.get("fixtures/fixture.txt"))).isEqualTo("ori\n");
+            restTemplate.postForObject(restoreUrl + "/" + sftpPort, null, ServerCommandResponse.class);
+            assertThat(readFromInputStream(channelSftp.get("fixtures/fixture.txt"))).isEqualTo("original\n");
+            assertThat(channelSftp.stat("fixtures/fixture.txt").getSize()).isEqualTo(case4Original.getSize());
+
+            /*
+                Case 5: Verify when a snapshot that does not exist is restored that a failure response is received
+             */
+            log.info("Case 5: Verify when a snapshot that does not exist is restored that a failure response is received (inMemory={})", inMemory);
+            verifyServerCommandResponse(
+                    restTemplate.postForObject(restoreUrl + "/" + sftpPort + "?name=missing", null, ServerCommandResponse.class),
+                    ServerCommandStatus.FAILED,
+                    ServerStatus.UP,
+                    ServerType.SFTP
+            );
+
+            session.disconnect();
+            sftpHelper.stopSftpServer(sftpPort);
+        }
+    }
+
+    @Test
+    public void metricsTests() {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String metricsUrl = "http://localhost:" + port + "/metrics/sftp";
+
+        /*
+            Case 1: Verify when files are written, read, listed, and removed through an SFTP Server that its metrics
+            record the bytes and operations
+         */
+        log.info("Case 1: Verify when files are written, read, listed, and removed through an SFTP Server that its metrics record the bytes and operations");
+        int case1Port = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl + "/" + case1Port, null, ServerCommandResponse.class);
+        verifySftpServer(case1Port);
+        SftpPortMetrics case1Metrics = restTemplate.getForObject(metricsUrl + "/" + case1Port, SftpPortMetrics.class);
+        assertThat(case1Metrics.getBytesWritten()).isGreaterThan(0);
+        assertThat(case1Metrics.getBytesRead()).isGreaterThan(0);
+        assertThat(case1Metrics.getOperations().get(SftpOperation.OPEN).getCount()).isGreaterThan(0);
+        assertThat(case1Metrics.getOperations().get(SftpOperation.WRITE).getCount()).isGreaterThan(0);
+        assertThat(case1Metrics.getOperations().get(SftpOperation.READ).getP99Micros()).isGreaterThan(0);
+        assertThat(case1Metrics.getOperations().get(SftpOperation.READDIR).getCount()).isGreaterThan(0);
+        assertThat(case1Metrics.getOperations().get(SftpOperation.REMOVE).getCount()).isEqualTo(1);
+
+        /*
+            Case 2: Verify latencies within the same power of two are told apart in the reported percentiles
+         */
+        log.info("Case 2: Verify latencies within the same power of two are told apart in the reported percentiles");
+        LatencyHistogram case2Histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            case2Histogram.record(TimeUnit.MICROSECONDS.toNanos(1100), false);
+        }
+        for (int i = 0; i < 10; i++) {
+            case2Histogram.record(TimeUnit.MICROSECONDS.toNanos(2000), false);
+        }
+        LatencySummary case2Summary = case2Histogram.summarize();
+        assertThat(case2Summary.getP50Micros()).isBetween(1100L, 1100L + 1100L / 32);
+        assertThat(case2Summary.getP99Micros()).isEqualTo(2000L);
+        assertThat(case2Summary.getHistogram()).containsEntry(2048L, 100L);
+    }
+
+    @Test
+    public void loadTestTests() {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String loadTestUrl = "http://localhost:" + port + "/loadtest/sftp";
+        String loadTestJobsUrl = "http://localhost:" + port + "/loadtest/jobs";
+
+        /*
+            Case 1: Verify when a load test is run against an SFTP Server that every operation in the mix is reported
+            with its latencies and that the session directories are cleaned up
+         */
+        log.info("Case 1: Verify when a load test is run against an SFTP Server that every operation in the mix is reported with its latencies and that the session directories are cleaned up");
+        int case1Port = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl + "/" + case1Port, null, ServerCommandResponse.class);
+        Map<LoadTestOperation, Integer> case1Mix = new EnumMap<>(LoadTestOperation.class);
+        case1Mix.put(LoadTestOperation.PUT, 2);
+        case1Mix.put(LoadTestOperation.GET, 2);
+        case1Mix.put(LoadTestOperation.LS, 1);
+        case1Mix.put(LoadTestOperation.RM, 1);
+        LoadTestRequest case1Request = new LoadTestRequest("localhost", case1Port, 4, 1000, 200, 4096, case1Mix);
+        ResponseEntity<LoadTestResponse> case1Response = restTemplate.postForEntity(loadTestUrl, case1Request, LoadTestResponse.class);
+        assertThat(case1Response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(case1Response.getBody().getFailedSessions()).isEqualTo(0);
+        assertThat(case1Response.getBody().getOperationsPerSecond()).isGreaterThan(0);
+        assertThat(case1Response.getBody().getBytesTransferred()).isGreaterThan(0);
+        assertThat(case1Response.getBody().getLatencies().keySet()).containsExactlyInAnyOrderElementsOf(case1Mix.keySet());
+        assertThat(case1Response.getBody().getLatencies().get(LoadTestOperation.PUT).getP99Micros()).isGreaterThan(0);
+        assertThat(new File(sftpConfig.getLocalDir()).list()).isEmpty();
+
+        /*
+            Case 2: Verify when a load test is requested without any operations that an error response is received
+         */
+        log.info("Case 2: Verify when a load test is requested without any operations that an error response is received");
+        LoadTestRequest case2Request = new LoadTestRequest("localhost", case1Port, 4, 1000, 0, 4096, Collections.emptyMap());
+        ResponseEntity<LoadTestResponse> case2Response = restTemplate.postForEntity(loadTestUrl, case2Request, LoadTestResponse.class);
+        assertThat(case2Response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(case2Response.getBody().getCommandStatus()).isEqualTo(ServerCommandStatus.FAILED);
+
+        /*
+            Case 3: Verify when a load test is submitted asynchronously that a job is accepted and, once waited on, it
+            reports the load test results
+         */
+        log.info("Case 3: Verify when a load test is submitted asynchronously that a job is accepted and, once waited on, it reports the load test results");
+        ResponseEntity<LoadTestJob> case3Submission = restTemplate.postForEntity(loadTestUrl + "/async", case1Request, LoadTestJob.class);
+        assertThat(case3Submission.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(case3Submission.getBody().getJobStatus()).isEqualTo(ServerCommandJobStatus.PENDING);
+        LoadTestJob case3Job = restTemplate.getForObject(loadTestJobsUrl + "/" + case3Submission.getBody().getJobId() + "?waitMillis=10000", LoadTestJob.class);
+        assertThat(case3Job.getJobStatus()).isEqualTo(ServerCommandJobStatus.COMPLETED);
+        assertThat(case3Job.getResponse().getCommandStatus()).isEqualTo(ServerCommandStatus.SUCCESS);
+        assertThat(case3Job.getResponse().getLatencies().get(LoadTestOperation.GET).getP99Micros()).isGreaterThan(0);
+        assertThat(restTemplate.getForEntity(loadTestJobsUrl + "/unknown", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void tuningTests() {
+        String url = "http://localhost:" + port + "/sftp/start";
+
+        /*
+            Case 1: Verify when an SFTP Server is started without sizes configured or overridden that the Apache SSHD
+            default window, packet and buffer sizes are reported
+         */
+        log.info("Case 1: Verify when an SFTP Server is started without sizes configured or overridden that the Apache SSHD default window, packet and buffer sizes are reported");
+        int case1Port = SocketUtils.findAvailableTcpPort();
+        ServerCommandResponse case1Response = restTemplate.postForObject(url, new StartSftpServerRequest(case1Port, null), ServerCommandResponse.class);
+        assertThat(case1Response.getSettings().get("windowSize")).isEqualTo(FactoryManager.DEFAULT_WINDOW_SIZE);
+        assertThat(case1Response.getSettings().get("maxPacketSize")).isEqualTo(FactoryManager.DEFAULT_MAX_PACKET_SIZE);
+        assertThat(case1Response.getSettings().get("maxReadDataLength")).isEqualTo((long) AbstractSftpSubsystemHelper.DEFAULT_MAX_READDATA_PACKET_LENGTH);
+        assertThat(case1Response.getSettings()).doesNotContainKey("socketBufferSize");
+        verifySftpServer(case1Port);
+
+        /*
+            Case 2: Verify when an SFTP Server is started with overrides that they are applied on top of the default
+            sizes and the server still transfers files
+         */
+        log.info("Case 2: Verify when an SFTP Server is started with overrides that they are applied on top of the default sizes and the server still transfers files");
+        int case2Port = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest case2Request = new StartSftpServerRequest(case2Port, null, null, new SftpTuning(4194304L, null, 65536, 1048576, null));
+        ServerCommandResponse case2Response = restTemplate.postForObject(url, case2Request, ServerCommandResponse.class);
+        assertThat(case2Response.getSettings().get("windowSize")).isEqualTo(4194304L);
+        assertThat(case2Response.getSettings().get("maxPacketSize")).isEqualTo(FactoryManager.DEFAULT_MAX_PACKET_SIZE);
+        assertThat(case2Response.getSettings().get("readBufferSize")).isEqualTo(65536L);
+        assertThat(case2Response.getSettings().get("socketBufferSize")).isEqualTo(1048576L);
+        verifySftpServer(case2Port);
+
+        /*
+            Case 3: Verify when an SFTP Server is started with a non-positive size that an error response is received
+         */
+        log.info("Case 3: Verify when an SFTP Server is started with a non-positive size that an error response is received");
+        int case3Port = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest case3Request = new StartSftpServerRequest(case3Port, null, null, new SftpTuning(0L, null, null, null, null));
+        ResponseEntity<ServerCommandResponse> case3Response = restTemplate.postForEntity(url, case3Request, ServerCommandResponse.class);
+        assertThat(case3Response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(serverManager.isPortInUse(case3Port)).isFalse();
+    }
+
+    @Test
+    public void shapingTests() throws JSchException, SftpException, InterruptedException, IOException {
+        String url = "http://localhost:" + port + "/sftp/start";
+
+        /*
+            Case 1: Verify when an SFTP Server is started with a bandwidth cap that uploads and downloads are held to it
+            and the cap is reported
+         */
+        log.info("Case 1: Verify when an SFTP Server is started with a bandwidth cap that uploads and downloads are held to it and the cap is reported");
+        int case1Port = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest case1Request = new StartSftpServerRequest(case1Port, null);
+        case1Request.setShaping(new ShapingProfile(1000000L, null, null, null, null));
+        ServerCommandResponse case1Response = restTemplate.postForObject(url, case1Request, ServerCommandResponse.class);
+        assertThat(case1Response.getSettings().get("bandwidthBytesPerSecond")).isEqualTo(1000000L);
+        byte[] case1Content = new byte[1500000];
+        Session session = new JSch().getSession("test", "localhost", case1Port);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        long case1Start = System.nanoTime();
+        channelSftp.put(new ByteArrayInputStream(case1Content), "shaped.bin");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - case1Start)).isGreaterThanOrEqualTo(1200);
+        case1Start = System.nanoTime();
+        ByteArrayOutputStream case1Download = new ByteArrayOutputStream();
+        channelSftp.get("shaped.bin", case1Download);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - case1Start)).isGreaterThanOrEqualTo(1200);
+        assertThat(case1Download.toByteArray()).isEqualTo(case1Content);
+        session.disconnect();
+
+        /*
+            Case 2: Verify when an SFTP Server is started with added latency that every round trip is delayed by it
+         */
+        log.info("Case 2: Verify when an SFTP Server is started with added latency that every round trip is delayed by it");
+        int case2Port = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest case2Request = new StartSftpServerRequest(case2Port, null);
+        case2Request.setShaping(new ShapingProfile(null, null, 50L, 10L, null));
+        restTemplate.postForObject(url, case2Request, ServerCommandResponse.class);
+        session = new JSch().getSession("test", "localhost", case2Port);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        long case2Start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            channelSftp.stat(".");
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - case2Start)).isGreaterThanOrEqualTo(500);
+        session.disconnect();
+
+        /*
+            Case 3: Verify when an SFTP Server is started with a session cap that connections which never authenticate
+            do not count against it, and that sessions beyond it are refused until a session closes
+         */
+        log.info("Case 3: Verify when an SFTP Server is started with a session cap that connections which never authenticate do not count against it, and that sessions beyond it are refused until a session closes");
+        int case3Port = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest case3Request = new StartSftpServerRequest(case3Port, null);
+        case3Request.setShaping(new ShapingProfile(null, null, null, null, 1));
+        restTemplate.postForObject(url, case3Request, ServerCommandResponse.class);
+        Socket case3Probe = new Socket("localhost", case3Port);
+        session = new JSch().getSession("test", "localhost", case3Port);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        case3Probe.close();
+        Session case3Refused = new JSch().getSession("test", "localhost", case3Port);
+        case3Refused.setConfig("StrictHostKeyChecking", "no");
+        Assertions.assertThrows(JSchException.class, case3Refused::connect);
+        session.disconnect();
+        boolean case3Connected = false;
+        for (int i = 0; i < 50 && !case3Connected; i++) {
+            Thread.sleep(100);
+            Session case3Retry = new JSch().getSession("test", "localhost", case3Port);
+            case3Retry.setConfig("StrictHostKeyChecking", "no");
+            try {
+                case3Retry.connect();
+                case3Connected = true;
+                case3Retry.disconnect();
+            } catch (JSchException e) {
+                log.info("Session cap not released yet -- " + e.getMessage());
+            }
+        }
+        assertThat(case3Connected).isTrue();
+
+        /*
+            Case 4: Verify when an SFTP Server is started with an unknown shaping profile that an error response is
+            received
+         */
+        log.info("Case 4: Verify when an SFTP Server is started with an unknown shaping profile that an error response is received");
+        int case4Port = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest case4Request = new StartSftpServerRequest(case4Port, null);
+        case4Request.setShapingProfile("does-not-exist");
+        ResponseEntity<ServerCommandResponse> case4Response = restTemplate.postForEntity(url, case4Request, ServerCommandResponse.class);
+        assertThat(case4Response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(serverManager.isPortInUse(case4Port)).isFalse();
+    }
+
+    @Test
+    public void mappedReadTests() throws JSchException, SftpException, IOException {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        byte[] content = new byte[(int) sftpConfig.getMappedReadThresholdBytes() + 12345];
+        new java.util.Random(0).nextBytes(content);
+
+        /*
+            Case 1: Verify when a file above the mapped read threshold is downloaded, in full and from an offset, that
+            the bytes received match the file
+         */
+        log.info("Case 1: Verify when a file above the mapped read threshold is downloaded, in full and from an offset, that the bytes received match the file");
+        int case1Port = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl + "/" + case1Port, null, ServerCommandResponse.class);
+        FileUtils.writeByteArrayToFile(new File(sftpConfig.getLocalDir(), "large.bin"), content);
+        Session session = new JSch().getSession("test", "localhost", case1Port);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        ByteArrayOutputStream case1Full = new ByteArrayOutputStream();
+        channelSftp.get("large.bin", case1Full);
+        assertThat(case1Full.toByteArray()).isEqualTo(content);
+        ByteArrayOutputStream case1Resumed = new ByteArrayOutputStream();
+        channelSftp.get("large.bin", case1Resumed, null, ChannelSftp.RESUME, content.length - 54321);
+        assertThat(case1Resumed.toByteArray()).isEqualTo(Arrays.copyOfRange(content, content.length - 54321, content.length));
+        session.disconnect();
+
+        /*
+            Case 2: Verify when a mapped channel is read in chunks that do not line up with its windows that the bytes
+            read match the file
+         */
+        log.info("Case 2: Verify when a mapped channel is read in chunks that do not line up with its windows that the bytes read match the file");
+        File case2File = new File(sftpConfig.getLocalDir(), "windows.bin");
+        FileUtils.writeByteArrayToFile(case2File, Arrays.copyOf(content, 100000));
+        ByteArrayOutputStream case2Read = new ByteArrayOutputStream();
+        try (MappedFileChannel channel = new MappedFileChannel(FileChannel.open(case2File.toPath()), 4096)) {
+            ByteBuffer chunk = ByteBuffer.allocate(3001);
+            while (channel.read(chunk) > 0) {
+                case2Read.write(chunk.array(), 0, chunk.position());
+                chunk.clear();
+            }
+            assertThat(channel.position(99990).read(chunk)).isEqualTo(10);
+        }
+        assertThat(case2Read.toByteArray()).isEqualTo(Arrays.copyOf(content, 100000));
+
+        /*
+            Case 3: Verify when a mapped channel is closed that its window is unmapped right away, so the file can be
+            deleted or replaced even on Windows
+         */
+        log.info("Case 3: Verify when a mapped channel is closed that its window is unmapped right away, so the file can be deleted or replaced even on Windows");
+        File case3Maps = new File("/proc/self/maps");
+        if (case3Maps.exists()) {
+            try (MappedFileChannel channel = new MappedFileChannel(FileChannel.open(case2File.toPath()), 4096)) {
+                channel.read(ByteBuffer.allocate(10000));
+                assertThat(FileUtils.readFileToString(case3Maps, StandardCharsets.UTF_8)).contains(case2File.getCanonicalPath());
+            }
+            assertThat(FileUtils.readFileToString(case3Maps, StandardCharsets.UTF_8)).doesNotContain(case2File.getCanonicalPath());
+        }
+    }
+
+    @Test
+    public void fileEventTests() throws JSchException, SftpException, IOException {
+        String startUrl = "http://localhost:" + port + "/sftp/start/";
+        int eventPort = SocketUtils.findAvailableTcpPort();
+        int otherPort = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl + eventPort, null, ServerCommandResponse.class);
+        restTemplate.postForObject(startUrl + otherPort, null, ServerCommandResponse.class);
+
+        /*
+            Case 1: Verify when a file is uploaded, renamed and removed that a subscriber of the port receives one event
+            for each, with the upload only reported once the file is closed
+         */
+        log.info("Case 1: Verify when a file is uploaded, renamed and removed that a subscriber of the port receives one event for each, with the upload only reported once the file is closed");
+        byte[] content = new byte[300000];
+        new java.util.Random(0).nextBytes(content);
+        BufferedReader case1Events = openEventStream("http://localhost:" + port + "/events/sftp/" + eventPort);
+        Session session = new JSch().getSession("test", "localhost", eventPort);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        channelSftp.put(new ByteArrayInputStream(content), "event.bin");
+        channelSftp.rename("event.bin", "event-renamed.bin");
+        channelSftp.rm("event-renamed.bin");
+        FileEvent case1Uploaded = nextEvent(case1Events);
+        assertThat(case1Uploaded.getType()).isEqualTo(FileEventType.UPLOADED);
+        assertThat(case1Uploaded.getPort()).isEqualTo(eventPort);
+        assertThat(case1Uploaded.getPath()).isEqualTo("/event.bin");
+        assertThat(case1Uploaded.getSize()).isEqualTo(content.length);
+        FileEvent case1Renamed = nextEvent(case1Events);
+        assertThat(case1Renamed.getType()).isEqualTo(FileEventType.RENAMED);
+        assertThat(case1Renamed.getPath()).isEqualTo("/event.bin");
+        assertThat(case1Renamed.getTargetPath()).isEqualTo("/event-renamed.bin");
+        FileEvent case1Removed = nextEvent(case1Events);
+        assertThat(case1Removed.getType()).isEqualTo(FileEventType.REMOVED);
+        assertThat(case1Removed.getPath()).isEqualTo("/event-renamed.bin");
+        assertThat(case1Removed.getSequence()).isGreaterThan(case1Renamed.getSequence());
+        assertThat(case1Renamed.getSequence()).isGreaterThan(case1Uploaded.getSequence());
+        session.disconnect();
+        case1Events.close();
+
+        /*
+            Case 2: Verify when a subscriber only follows one port that events of other ports are not delivered to it
+         */
+        log.info("Case 2: Verify when a subscriber only follows one port that events of other ports are not delivered to it");
+        BufferedReader case2Events = openEventStream("http://localhost:" + port + "/events/sftp/" + otherPort);
+        for (int sftpPort : new int[]{eventPort, otherPort}) {
+            session = new JSch().getSession("test", "localhost", sftpPort);
+            session.setConfig("StrictHostKeyChecking", "no");
+            session.connect();
+            channelSftp = (ChannelSftp) session.openChannel("sftp");
+            channelSftp.connect();
+            channelSftp.put(new ByteArrayInputStream(content, 0, 10), "port-" + sftpPort + ".bin");
+            channelSftp.rm("port-" + sftpPort + ".bin");
+            session.disconnect();
+        }
+        FileEvent case2Uploaded = nextEvent(case2Events);
+        assertThat(case2Uploaded.getType()).isEqualTo(FileEventType.UPLOADED);
+        assertThat(case2Uploaded.getPort()).isEqualTo(otherPort);
+        assertThat(case2Uploaded.getPath()).isEqualTo("/port-" + otherPort + ".bin");
+        assertThat(case2Uploaded.getSize()).isEqualTo(10);
+        case2Events.close();
+    }
+
+    @Test
+    public void listingCacheTests() throws JSchException, SftpException, IOException, InterruptedException {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String metricsUrl = "http://localhost:" + port + "/metrics/sftp/";
+        int cachedPort = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest cachedRequest = new StartSftpServerRequest(cachedPort, null);
+        cachedRequest.setListingCache(true);
+        ServerCommandResponse cachedResponse = restTemplate.postForObject(startUrl, cachedRequest, ServerCommandResponse.class);
+        assertThat(cachedResponse.getSettings()).containsKey("listingCacheMaxEntries");
+        String directory = "listing-" + cachedPort;
+        File localDirectory = new File(sftpConfig.getLocalDir(), directory);
+        for (int i = 0; i < 300; i++) {
+            FileUtils.writeStringToFile(new File(localDirectory, i + ".txt"), String.valueOf(i), "UTF-8");
+        }
+
+        /*
+            A directory modified within the last second is not cached yet
+         */
+        Thread.sleep(1100);
+        Session session = new JSch().getSession("test", "localhost", cachedPort);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+
+        /*
+            Case 1: Verify when a large directory is listed repeatedly on a server with a listing cache that the listings
+            match and the cache hit ratio is reported in the metrics
+         */
+        log.info("Case 1: Verify when a large directory is listed repeatedly on a server with a listing cache that the listings match and the cache hit ratio is reported in the metrics");
+        Vector<ChannelSftp.LsEntry> case1First = channelSftp.ls(directory);
+        for (int i = 0; i < 4; i++) {
+            Vector<ChannelSftp.LsEntry> case1Again = channelSftp.ls(directory);
+            assertThat(case1Again.size()).isEqualTo(case1First.size());
+        }
+        assertThat(case1First.stream().filter(entry -> entry.getFilename().equals("42.txt")).findFirst().get().getAttrs().getSize()).isEqualTo(2);
+        SftpPortMetrics case1Metrics = restTemplate.getForObject(metricsUrl + cachedPort, SftpPortMetrics.class);
+        log.info("Listing cache hit ratio after 5 listings -- " + case1Metrics.getListingCache().getHitRatio());
+        assertThat(case1Metrics.getListingCache().getHitRatio()).isGreaterThan(0.7);
+        assertThat(case1Metrics.getListingCache().getCachedEntries()).isGreaterThanOrEqualTo(300);
+
+        /*
+            Case 2: Verify when files are uploaded, renamed, and removed through the server that its next listing
+            reflects each change
+         */
+        log.info("Case 2: Verify when files are uploaded, renamed, and removed through the server that its next listing reflects each change");
+        channelSftp.put(new ByteArrayInputStream("uploaded".getBytes()), directory + "/uploaded.txt");
+        assertThat(listNames(channelSftp, directory)).contains("uploaded.txt");
+        channelSftp.put(new ByteArrayInputStream("uploaded again".getBytes()), directory + "/uploaded.txt");
+        assertThat(channelSftp.stat(directory + "/uploaded.txt").getSize()).isEqualTo(14);
+        channelSftp.rename(directory + "/uploaded.txt", directory + "/renamed.txt");
+        assertThat(listNames(channelSftp, directory)).contains("renamed.txt").doesNotContain("uploaded.txt");
+        channelSftp.rm(directory + "/renamed.txt");
+        assertThat(listNames(channelSftp, directory)).doesNotContain("renamed.txt").hasSize(302);
+
+        /*
+            Case 3: Verify when a file is added to the directory outside SFTP that the next listing includes it
+         */
+        log.info("Case 3: Verify when a file is added to the directory outside SFTP that the next listing includes it");
+        Thread.sleep(1100);
+        channelSftp.ls(directory);
+        channelSftp.ls(directory);
+        FileUtils.writeStringToFile(new File(localDirectory, "external.txt"), "external", "UTF-8");
+        assertThat(listNames(channelSftp, directory)).contains("external.txt");
+        session.disconnect();
+
+        /*
+            Case 4: Verify when a server is started without a listing cache that no cache metrics are reported
+         */
+        log.info("Case 4: Verify when a server is started without a listing cache that no cache metrics are reported");
+        int case4Port = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl + "/" + case4Port, null, ServerCommandResponse.class);
+        verifySftpServer(case4Port);
+        assertThat(restTemplate.getForObject(metricsUrl + case4Port, SftpPortMetrics.class).getListingCache()).isNull();
+        FileUtils.deleteDirectory(localDirectory);
+    }
+
+    @Test
+    public void seedTests() throws JSchException, SftpException, IOException {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String seedUrl = "http://localhost:" + port + "/sftp/seed/";
+        int seedPort = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl + "/" + seedPort, null, ServerCommandResponse.class);
+        String directory = "seed-" + seedPort;
+        byte[] large = new byte[3 * 1024 * 1024];
+        new java.util.Random(0).nextBytes(large);
+
+        /*
+            Case 1: Verify when a zip archive is uploaded to a running server that every file and directory is
+            extracted into its root with the same contents, including a file too large to be buffered
+         */
+        log.info("Case 1: Verify when a zip archive is uploaded to a running server that every file and directory is extracted into its root with the same contents, including a file too large to be buffered");
+        ByteArrayOutputStream case1Archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(case1Archive)) {
+            zip.putNextEntry(new ZipEntry(directory + "/empty/"));
+            for (int i = 0; i < 500; i++) {
+                zip.putNextEntry(new ZipEntry(directory + "/" + (i % 10) + "/" + i + ".txt"));
+                zip.write(String.valueOf(i).getBytes());
+            }
+            zip.putNextEntry(new ZipEntry(directory + "/large.bin"));
+            zip.write(large);
+        }
+        ResponseEntity<SeedSftpServerResponse> case1Response = restTemplate.postForEntity(seedUrl + seedPort, case1Archive.toByteArray(), SeedSftpServerResponse.class);
+        assertThat(case1Response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(case1Response.getBody().getFiles()).isEqualTo(501);
+        assertThat(case1Response.getBody().getDirectories()).isEqualTo(1);
+        assertThat(case1Response.getBody().getBytes()).isGreaterThan(large.length);
+        File localDirectory = new File(sftpConfig.getLocalDir(), directory);
+        assertThat(new File(localDirectory, "empty")).isDirectory();
+        assertThat(FileUtils.readFileToString(new File(localDirectory, "7/257.txt"), "UTF-8")).isEqualTo("257");
+        assertThat(FileUtils.readFileToByteArray(new File(localDirectory, "large.bin"))).isEqualTo(large);
+        FileUtils.deleteDirectory(localDirectory);
+
+        /*
+            Case 2: Verify when an in-memory server is started with a local gzipped tar archive to seed from that its
+            files can be downloaded over SFTP and symbolic links are skipped
+         */
+        log.info("Case 2: Verify when an in-memory server is started with a local gzipped tar archive to seed from that its files can be downloaded over SFTP and symbolic links are skipped");
+        int case2Port = SocketUtils.findAvailableTcpPort();
+        File case2Archive = File.createTempFile("seed", ".tar.gz");
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(new FileOutputStream(case2Archive)))) {
+            TarArchiveEntry case2File = new TarArchiveEntry("inbox/large.bin");
+            case2File.setSize(large.length);
+            tar.putArchiveEntry(case2File);
+            tar.write(large);
+            tar.closeArchiveEntry();
+            TarArchiveEntry case2Link = new TarArchiveEntry("inbox/link.bin", TarConstants.LF_SYMLINK);
+            case2Link.setLinkName("large.bin");
+            tar.putArchiveEntry(case2Link);
+            tar.closeArchiveEntry();
+        }
+        StartSftpServerRequest case2Request = new StartSftpServerRequest(case2Port, null, true);
+        case2Request.setSeedArchive(case2Archive.getAbsolutePath());
+        ServerCommandResponse case2Response = restTemplate.postForObject(startUrl, case2Request, ServerCommandResponse.class);
+        assertThat(case2Response.getMessage()).doesNotContain("Failed to seed");
+        Session session = new JSch().getSession("test", "localhost", case2Port);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        ByteArrayOutputStream case2Downloaded = new ByteArrayOutputStream();
+        channelSftp.get("inbox/large.bin", case2Downloaded);
+        assertThat(case2Downloaded.toByteArray()).isEqualTo(large);
+        assertThat(listNames(channelSftp, "inbox")).contains("large.bin").doesNotContain("link.bin");
+        session.disconnect();
+        case2Archive.delete();
+
+        /*
+            Case 3: Verify when an archive has an entry outside the root that the seed fails and nothing is written
+            outside the root
+         */
+        log.info("Case 3: Verify when an archive has an entry outside the root that the seed fails and nothing is written outside the root");
+        ByteArrayOutputStream case3Archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(case3Archive)) {
+            zip.putNextEntry(new ZipEntry("../escaped-" + seedPort + ".txt"));
+            zip.write("escaped".getBytes());
+        }
+        ResponseEntity<SeedSftpServerResponse> case3Response = restTemplate.postForEntity(seedUrl + seedPort, case3Archive.toByteArray(), SeedSftpServerResponse.class);
+        assertThat(case3Response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(new File(new File(sftpConfig.getLocalDir()).getAbsoluteFile().getParentFile(), "escaped-" + seedPort + ".txt")).doesNotExist();
+
+        /*
+            Case 4: Verify when a port has no SFTP Server running that seeding it fails
+         */
+        log.info("Case 4: Verify when a port has no SFTP Server running that seeding it fails");
+        ResponseEntity<SeedSftpServerResponse> case4Response = restTemplate.postForEntity(seedUrl + SocketUtils.findAvailableTcpPort(), case1Archive.toByteArray(), SeedSftpServerResponse.class);
+        assertThat(case4Response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(case4Response.getBody().getServerStatus()).isEqualTo(ServerStatus.DOWN);
+
+        /*
+            Case 5: Verify when an archive is seeded over a restored file that restoring again brings back the content
+            the file was snapshotted with
+         */
+        log.info("Case 5: Verify when an archive is seeded over a restored file that restoring again brings back the content the file was snapshotted with");
+        String restoreUrl = "http://localhost:" + port + "/sftp/restore/" + seedPort;
+        File case5File = new File(sftpConfig.getLocalDir(), directory + "/restored.txt");
+        FileUtils.writeStringToFile(case5File, "original", "UTF-8");
+        restTemplate.postForObject("http://localhost:" + port + "/sftp/snapshot/" + seedPort, null, ServerCommandResponse.class);
+        restTemplate.postForObject(restoreUrl, null, ServerCommandResponse.class);
+        ByteArrayOutputStream case5Archive = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(case5Archive)) {
+            TarArchiveEntry case5Entry = new TarArchiveEntry(directory + "/restored.txt");
+            case5Entry.setSize(6);
+            tar.putArchiveEntry(case5Entry);
+            tar.write("seeded".getBytes());
+            tar.closeArchiveEntry();
+        }
+        ResponseEntity<SeedSftpServerResponse> case5Response = restTemplate.postForEntity(seedUrl + seedPort, case5Archive.toByteArray(), SeedSftpServerResponse.class);
+        assertThat(case5Response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(FileUtils.readFileToString(case5File, "UTF-8")).isEqualTo("seeded");
+        restTemplate.postForObject(restoreUrl, null, ServerCommandResponse.class);
+        assertThat(FileUtils.readFileToString(case5File, "UTF-8")).isEqualTo("original");
+        assertThat(case5File.getParentFile().list()).containsExactly("restored.txt");
+        FileUtils.deleteDirectory(case5File.getParentFile());
+    }
+
+    @Test
+    public void journalTests() throws JSchException, SftpException {
+        String startUrl = "http://localhost:" + port + "/sftp/start/";
+        String journalUrl = "http://localhost:" + port + "/journal/sftp";
+        int journalPort = SocketUtils.findAvailableTcpPort();
+        int otherPort = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl + journalPort, null, ServerCommandResponse.class);
+        restTemplate.postForObject(startUrl + otherPort, null, ServerCommandResponse.class);
+        String directory = "journal-" + journalPort;
+        byte[] content = new byte[300000];
+        new java.util.Random(0).nextBytes(content);
+
+        /*
+            Case 1: Verify when a directory is created and a file is uploaded, downloaded, renamed and removed that the
+            journal of the port has one record for each, with the bytes transferred and the user
+         */
+        log.info("Case 1: Verify when a directory is created and a file is uploaded, downloaded, renamed and removed that the journal of the port has one record for each, with the bytes transferred and the user");
+        long case1Start = System.currentTimeMillis();
+        Session session = new JSch().getSession("journal", "localhost", journalPort);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        channelSftp.mkdir(directory);
+        channelSftp.put(new ByteArrayInputStream(content), directory + "/journal.bin");
+        channelSftp.get(directory + "/journal.bin", new ByteArrayOutputStream());
+        channelSftp.rename(directory + "/journal.bin", directory + "/renamed.bin");
+        channelSftp.rm(directory + "/renamed.bin");
+        JournalRecord[] case1Records = restTemplate.getForObject(journalUrl + "?port=" + journalPort + "&pathPrefix=/" + directory, JournalRecord[].class);
+        assertThat(Arrays.stream(case1Records).map(JournalRecord::getOperation)).containsExactly(
+                JournalOperation.MKDIR, JournalOperation.UPLOAD, JournalOperation.DOWNLOAD, JournalOperation.RENAME, JournalOperation.REMOVE
+        );
+        assertThat(case1Records[1].getPath()).isEqualTo("/" + directory + "/journal.bin");
+        assertThat(case1Records[1].getBytes()).isEqualTo(content.length);
+        assertThat(case1Records[1].getUser()).isEqualTo("journal");
+        assertThat(case1Records[1].isSuccess()).isTrue();
+        assertThat(case1Records[2].getBytes()).isEqualTo(content.length);
+        assertThat(case1Records[3].getTargetPath()).isEqualTo("/" + directory + "/renamed.bin");
+        assertThat(Arrays.stream(case1Records).map(JournalRecord::getSession).distinct()).hasSize(1);
+        assertThat(case1Records[0].getTimestamp()).isGreaterThanOrEqualTo(case1Start);
+
+        /*
+            Case 2: Verify when an operation fails that it is journaled with its error
+         */
+        log.info("Case 2: Verify when an operation fails that it is journaled with its error");
+        Assertions.assertThrows(SftpException.class, () -> channelSftp.get(directory + "/missing.bin", new ByteArrayOutputStream()));
+        JournalRecord[] case2Records = restTemplate.getForObject(journalUrl + "?port=" + journalPort + "&pathPrefix=/" + directory + "/missing", JournalRecord[].class);
+        assertThat(case2Records).hasSize(1);
+        assertThat(case2Records[0].isSuccess()).isFalse();
+        assertThat(case2Records[0].getError()).isNotEmpty();
+        session.disconnect();
+
+        /*
+            Case 3: Verify when the journal is filtered by another port or a time range before the operations that
+            none of them are returned
+         */
+        log.info("Case 3: Verify when the journal is filtered by another port or a time range before the operations that none of them are returned");
+        assertThat(restTemplate.getForObject(journalUrl + "?port=" + otherPort + "&pathPrefix=/" + directory, JournalRecord[].class)).isEmpty();
+        assertThat(restTemplate.getForObject(journalUrl + "?pathPrefix=/" + directory + "&to=" + case1Start, JournalRecord[].class)).isEmpty();
+        assertThat(restTemplate.getForObject(journalUrl + "?pathPrefix=/" + directory + "&from=" + case1Start + "&limit=2", JournalRecord[].class)).hasSize(2);
+
+        /*
+            Case 4: Verify when the ring buffer is full that further records are dropped and counted, and that draining
+            returns the kept ones in order
+         */
+        log.info("Case 4: Verify when the ring buffer is full that further records are dropped and counted, and that draining returns the kept ones in order");
+        JournalRingBuffer ringBuffer = new JournalRingBuffer(3);
+        assertThat(ringBuffer.getCapacity()).isEqualTo(4);
+        for (int i = 0; i < 6; i++) {
+            assertThat(ringBuffer.offer(i, journalPort, 1, "ring", JournalOperation.UPLOAD, "/" + i, null, i, 0, null)).isEqualTo(i < 4);
+        }
+        assertThat(ringBuffer.getDropped()).isEqualTo(2);
+        List<JournalRecord> case4Drained = new ArrayList<JournalRecord>();
+        assertThat(ringBuffer.drain(slot -> case4Drained.add(slot.toRecord()))).isEqualTo(4);
+        assertThat(case4Drained.stream().map(JournalRecord::getPath)).containsExactly("/0", "/1", "/2", "/3");
+        assertThat(ringBuffer.offer(6, journalPort, 1, "ring", JournalOperation.UPLOAD, "/6", null, 6, 0, null)).isTrue();
+    }
+
+    @Test
+    public void checksumTests() throws JSchException, SftpException, IOException, NoSuchAlgorithmException {
+        String startUrl = "http://localhost:" + port + "/sftp/start/";
+        String checksumUrl = "http://localhost:" + port + "/sftp/checksum/";
+        int checksumPort = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl + checksumPort, null, ServerCommandResponse.class);
+        String directory = "checksum-" + checksumPort;
+        byte[] content = new byte[700000];
+        new java.util.Random(0).nextBytes(content);
+        byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(content);
+        byte[] md5 = MessageDigest.getInstance("MD5").digest(content);
+
+        /*
+            Case 1: Verify when a file is uploaded that its SHA-256 and MD5 are served along with its size
+         */
+        log.info("Case 1: Verify when a file is uploaded that its SHA-256 and MD5 are served along with its size");
+        Session session = new JSch().getSession("test", "localhost", checksumPort);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        channelSftp.mkdir(directory);
+        channelSftp.put(new ByteArrayInputStream(content), directory + "/upload.bin");
+        ResponseEntity<FileChecksum> case1Response = restTemplate.getForEntity(checksumUrl + checksumPort + "?path=/" + directory + "/upload.bin", FileChecksum.class);
+        assertThat(case1Response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(case1Response.getBody().getPath()).isEqualTo("/" + directory + "/upload.bin");
+        assertThat(case1Response.getBody().getSize()).isEqualTo(content.length);
+        assertThat(case1Response.getBody().getSha256()).isEqualTo(BufferUtils.toHex(BufferUtils.EMPTY_HEX_SEPARATOR, sha256));
+        assertThat(case1Response.getBody().getMd5()).isEqualTo(BufferUtils.toHex(BufferUtils.EMPTY_HEX_SEPARATOR, md5));
+        assertThat(restTemplate.getForEntity(checksumUrl + checksumPort + "?path=" + directory + "/upload.bin", FileChecksum.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        /*
+            Case 2: Verify when an SFTP client asks for the hash of the whole file through check-file or md5-hash that
+            it gets the uploaded digests, and that a range is still hashed from the file
+         */
+        log.info("Case 2: Verify when an SFTP client asks for the hash of the whole file through check-file or md5-hash that it gets the uploaded digests, and that a range is still hashed from the file");
+        SshClient client = SshClient.setUpDefaultClient();
+        client.setServerKeyVerifier(AcceptAllServerKeyVerifier.INSTANCE);
+        client.start();
+        try (ClientSession clientSession = client.connect("test", "localhost", checksumPort).verify(10000).getSession()) {
+            clientSession.addPasswordIdentity("test");
+            clientSession.auth().verify(10000);
+            try (SftpClient sftpClient = SftpClientFactory.instance().createSftpClient(clientSession)) {
+                Map.Entry<String, Collection<byte[]>> case2Whole = sftpClient.getExtension(CheckFileNameExtension.class)
+                        .checkFileName("/" + directory + "/upload.bin", Collections.singletonList("sha256"), 0, 0, 0);
+                assertThat(case2Whole.getKey()).isEqualTo("sha256");
+                assertThat(case2Whole.getValue()).containsExactly(sha256);
+                assertThat(sftpClient.getExtension(MD5FileExtension.class).getHash("/" + directory + "/upload.bin", 0, 0, new byte[0])).isEqualTo(md5);
+                Map.Entry<String, Collection<byte[]>> case2Range = sftpClient.getExtension(CheckFileNameExtension.class)
+                        .checkFileName("/" + directory + "/upload.bin", Collections.singletonList("sha256"), 0, 1000, 0);
+                assertThat(case2Range.getValue()).containsExactly(MessageDigest.getInstance("SHA-256").digest(Arrays.copyOf(content, 1000)));
+            }
+        } finally {
+            client.stop();
+        }
+
+        /*
+            Case 3: Verify when a file is renamed that its checksum follows it, and when an upload is resumed part way
+            through that no checksum is kept since not every byte was seen
+         */
+        log.info("Case 3: Verify when a file is renamed that its checksum follows it, and when an upload is resumed part way through that no checksum is kept since not every byte was seen");
+        channelSftp.rename(directory + "/upload.bin", directory + "/renamed.bin");
+        assertThat(restTemplate.getForEntity(checksumUrl + checksumPort + "?path=/" + directory + "/upload.bin", FileChecksum.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForObject(checksumUrl + checksumPort + "?path=/" + directory + "/renamed.bin", FileChecksum.class).getSha256()).isEqualTo(case1Response.getBody().getSha256());
+        channelSftp.put(new ByteArrayInputStream(Arrays.copyOf(content, 1000)), directory + "/resumed.bin");
+        channelSftp.put(new ByteArrayInputStream(content), directory + "/resumed.bin", ChannelSftp.RESUME);
+        assertThat(channelSftp.lstat(directory + "/resumed.bin").getSize()).isEqualTo(content.length);
+        assertThat(restTemplate.getForEntity(checksumUrl + checksumPort + "?path=/" + directory + "/resumed.bin", FileChecksum.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        channelSftp.exit();
+        session.disconnect();
+
+        /*
+            Case 4: Verify when a file is changed outside SFTP or the port is unknown that no checksum is served
+         */
+        log.info("Case 4: Verify when a file is changed outside SFTP or the port is unknown that no checksum is served");
+        FileUtils.writeStringToFile(new File(new File(sftpConfig.getLocalDir(), directory), "renamed.bin"), "changed", "UTF-8");
+        assertThat(restTemplate.getForEntity(checksumUrl + checksumPort + "?path=/" + directory + "/renamed.bin", FileChecksum.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity(checksumUrl + SocketUtils.findAvailableTcpPort() + "?path=/" + directory + "/renamed.bin", FileChecksum.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        FileUtils.deleteDirectory(new File(sftpConfig.getLocalDir(), directory));
+    }
+
+    @Test
+    public void serverSideCopyTests() throws JSchException, SftpException, IOException, InterruptedException {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String checksumUrl = "http://localhost:" + port + "/sftp/checksum/";
+        String journalUrl = "http://localhost:" + port + "/journal/sftp";
+        int copyPort = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest copyRequest = new StartSftpServerRequest(copyPort, null);
+        copyRequest.setListingCache(true);
+        restTemplate.postForObject(startUrl, copyRequest, ServerCommandResponse.class);
+        String directory = "copy-" + copyPort;
+        File localDirectory = new File(sftpConfig.getLocalDir(), directory);
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new java.util.Random(0).nextBytes(content);
+        Session session = new JSch().getSession("test", "localhost", copyPort);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.connect();
+        ChannelSftp channelSftp = (ChannelSftp) session.openChannel("sftp");
+        channelSftp.connect();
+        channelSftp.mkdir(directory);
+        channelSftp.put(new ByteArrayInputStream(content), directory + "/source.bin");
+        channelSftp.put(new ByteArrayInputStream(new byte[10]), directory + "/existing.bin");
+        channelSftp.exit();
+        session.disconnect();
+
+        SshClient client = SshClient.setUpDefaultClient();
+        client.setServerKeyVerifier(AcceptAllServerKeyVerifier.INSTANCE);
+        client.start();
+        try (ClientSession clientSession = client.connect("test", "localhost", copyPort).verify(10000).getSession()) {
+            clientSession.addPasswordIdentity("test");
+            clientSession.auth().verify(10000);
+            try (SftpClient sftpClient = SftpClientFactory.instance().createSftpClient(clientSession)) {
+                /*
+                    Case 1: Verify when a file is copied with copy-file that the copy has the same content, and that an
+                    existing target is only replaced when overwriting is asked for
+                 */
+                log.info("Case 1: Verify when a file is copied with copy-file that the copy has the same content, and that an existing target is only replaced when overwriting is asked for");
+                CopyFileExtension copyFile = sftpClient.getExtension(CopyFileExtension.class);
+                assertThat(copyFile.isSupported()).isTrue();
+                copyFile.copyFile("/" + directory + "/source.bin", "/" + directory + "/copy.bin", false);
+                assertThat(FileUtils.readFileToByteArray(new File(localDirectory, "copy.bin"))).isEqualTo(content);
+                Assertions.assertThrows(IOException.class, () -> copyFile.copyFile("/" + directory + "/source.bin", "/" + directory + "/existing.bin", false));
+                assertThat(new File(localDirectory, "existing.bin").length()).isEqualTo(10);
+                copyFile.copyFile("/" + directory + "/source.bin", "/" + directory + "/existing.bin", true);
+                assertThat(FileUtils.readFileToByteArray(new File(localDirectory, "existing.bin"))).isEqualTo(content);
+
+                /*
+                    Case 2: Verify when a range is copied with copy-data that it lands at the write offset, that an
+                    overlapping copy within a file is refused, and that an upload overwritten by copy-data keeps no
+                    checksum
+                 */
+                log.info("Case 2: Verify when a range is copied with copy-data that it lands at the write offset, that an overlapping copy within a file is refused, and that an upload overwritten by copy-data keeps no checksum");
+                CopyDataExtension copyData = sftpClient.getExtension(CopyDataExtension.class);
+                try (SftpClient.CloseableHandle source = sftpClient.open("/" + directory + "/source.bin", SftpClient.OpenMode.Read);
+                     SftpClient.CloseableHandle target = sftpClient.open("/" + directory + "/range.bin", SftpClient.OpenMode.Write, SftpClient.OpenMode.Create)) {
+                    sftpClient.write(target, 0, new byte[100]);
+                    copyData.copyData(source, 1000, 50, target, 0);
+                }
+                byte[] case2Expected = new byte[100];
+                System.arraycopy(content, 1000, case2Expected, 0, 50);
+                assertThat(FileUtils.readFileToByteArray(new File(localDirectory, "range.bin"))).isEqualTo(case2Expected);
+                assertThat(restTemplate.getForEntity(checksumUrl + copyPort + "?path=/" + directory + "/range.bin", FileChecksum.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+                try (SftpClient.CloseableHandle handle = sftpClient.open("/" + directory + "/copy.bin", SftpClient.OpenMode.Read, SftpClient.OpenMode.Write)) {
+                    Assertions.assertThrows(IOException.class, () -> copyData.copyData(handle, 0, 1000, handle, 500));
+                }
+
+                /*
+                    Case 3: Verify when the free space is asked for with space-available, statvfs or fstatvfs that the
+                    size of the file store is reported
+                 */
+                log.info("Case 3: Verify when the free space is asked for with space-available, statvfs or fstatvfs that the size of the file store is reported");
+                SpaceAvailableExtensionInfo case3Space = sftpClient.getExtension(SpaceAvailableExtension.class).available("/" + directory);
+                assertThat(case3Space.bytesOnDevice).isPositive();
+                assertThat(case3Space.bytesAvailableToUser).isBetween(0L, case3Space.bytesOnDevice);
+                OpenSSHStatPathExtension statPath = sftpClient.getExtension(OpenSSHStatPathExtension.class);
+                assertThat(statPath.isSupported()).isTrue();
+                OpenSSHStatExtensionInfo case3Stat = statPath.stat("/" + directory);
+                assertThat(case3Stat.f_blocks * case3Stat.f_frsize).isCloseTo(case3Space.bytesOnDevice, Offset.offset(case3Stat.f_frsize));
+                try (SftpClient.CloseableHandle handle = sftpClient.open("/" + directory + "/source.bin", SftpClient.OpenMode.Read)) {
+                    assertThat(sftpClient.getExtension(OpenSSHStatHandleExtension.class).stat(handle).f_blocks).isEqualTo(case3Stat.f_blocks);
+                }
+
+                /*
+                    Case 4: Verify when copy-data writes into a file of a cached listing that listing it again shows the
+                    new size, and that the copy is published as a file event and journaled
+                 */
+                log.info("Case 4: Verify when copy-data writes into a file of a cached listing that listing it again shows the new size, and that the copy is published as a file event and journaled");
+                BufferedReader case4Events = openEventStream("http://localhost:" + port + "/events/sftp/" + copyPort);
+                FileUtils.writeByteArrayToFile(new File(localDirectory, "listed/small.bin"), new byte[10]);
+
+                /*
+                    A directory modified within the last second is not cached yet
+                 */
+                Thread.sleep(1100);
+                try (SftpClient.CloseableHandle source = sftpClient.open("/" + directory + "/source.bin", SftpClient.OpenMode.Read);
+                     SftpClient.CloseableHandle target = sftpClient.open("/" + directory + "/listed/small.bin", SftpClient.OpenMode.Write)) {
+                    assertThat(listSizes(sftpClient, "/" + directory + "/listed")).containsEntry("small.bin", 10L);
+                    copyData.copyData(source, 0, 1000, target, 10);
+                    assertThat(listSizes(sftpClient, "/" + directory + "/listed")).containsEntry("small.bin", 1010L);
+                }
+                FileEvent case4Copied = nextEvent(case4Events);
+                assertThat(case4Copied.getType()).isEqualTo(FileEventType.COPIED);
+                assertThat(case4Copied.getPath()).isEqualTo("/" + directory + "/source.bin");
+                assertThat(case4Copied.getTargetPath()).isEqualTo("/" + directory + "/listed/small.bin");
+                assertThat(case4Copied.getSize()).isEqualTo(1010L);
+                JournalRecord[] case4Records = restTemplate.getForObject(journalUrl + "?port=" + copyPort + "&pathPrefix=/" + directory + "/source.bin", JournalRecord[].class);
+                JournalRecord[] case4Copies = Arrays.stream(case4Records)
+                        .filter(record -> record.getOperation() == JournalOperation.COPY && ("/" + directory + "/listed/small.bin").equals(record.getTargetPath()))
+                        .toArray(JournalRecord[]::new);
+                assertThat(case4Copies).hasSize(1);
+                assertThat(case4Copies[0].getBytes()).isEqualTo(1000);
+                assertThat(case4Copies[0].isSuccess()).isTrue();
+            }
+        } finally {
+            client.stop();
+        }
+        FileUtils.deleteDirectory(localDirectory);
+    }
+
+    @Test
+    public void serverHealthTests() throws InterruptedException, JSchException {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String healthUrl = "http://localhost:" + port + "/health/servers";
+
+        /*
+            Case 1: Verify when an SFTP Server is running that it and the application are reported as bound and
+            accepting connections
+         */
+        log.info("Case 1: Verify when an SFTP Server is running that it and the application are reported as bound and accepting connections");
+        int case1Port = SocketUtils.findAvailableTcpPort();
+        restTemplate.postForObject(startUrl + "/" + case1Port, null, ServerCommandResponse.class);
+        long case1StartedAt = System.currentTimeMillis();
+
+        /*
+            The port is registered before the server binds it, so a probe that was already running during the start may
+            report it unbound. Only probes taken after the start returned are checked
+         */
+        Map<Integer, ServerHealth> case1Health = Collections.emptyMap();
+        for (int i = 0; i < 50 && (!case1Health.containsKey(case1Port) || case1Health.get(case1Port).getProbedAt() <= case1StartedAt); i++) {
+            Thread.sleep(100);
+            case1Health = new HashMap<>();
+            for (ServerHealth serverHealth : restTemplate.getForObject(healthUrl, ServerHealth[].class)) {
+                case1Health.put(serverHealth.getPort(), serverHealth);
+            }
+        }
+        assertThat(case1Health.get(case1Port).getServerType()).isEqualTo(ServerType.SFTP);
+        assertThat(case1Health.get(case1Port).isBound()).isTrue();
+        assertThat(case1Health.get(case1Port).getProbeStatus()).isEqualTo(ServerStatus.UP);
+        assertThat(case1Health.get(port).getServerType()).isEqualTo(ServerType.APPLICATION);
+        assertThat(case1Health.get(port).getProbeStatus()).isEqualTo(ServerStatus.UP);
+
+        /*
+            Case 2: Verify when an SFTP Server with a cap of one session has been probed for several intervals that the
+            probes never took its slot, and that it is still reported as accepting connections while that slot is held
+         */
+        log.info("Case 2: Verify when an SFTP Server with a cap of one session has been probed for several intervals that the probes never took its slot, and that it is still reported as accepting connections while that slot is held");
+        int case2Port = SocketUtils.findAvailableTcpPort();
+        StartSftpServerRequest case2Request = new StartSftpServerRequest(case2Port, null);
+        case2Request.setShaping(new ShapingProfile(null, null, null, null, 1));
+        restTemplate.postForObject(startUrl, case2Request, ServerCommandResponse.class);
+        Thread.sleep(1000);
+        Session case2Session = new JSch().getSession("test", "localhost", case2Port);
+        case2Session.setConfig("StrictHostKeyChecking", "no");
+        case2Session.connect();
+        try {
+            long case2ConnectedAt = System.currentTimeMillis();
+            ServerHealth case2Health = null;
+            for (int i = 0; i < 50 && (case2Health == null || case2Health.getProbedAt() <= case2ConnectedAt); i++) {
+                Thread.sleep(100);
+                case2Health = Arrays.stream(restTemplate.getForObject(healthUrl, ServerHealth[].class))
+                        .filter(serverHealth -> serverHealth.getPort() == case2Port)
+                        .findFirst()
+                        .orElse(null);
+            }
+            assertThat(case2Health).isNotNull();
+            assertThat(case2Health.getProbedAt()).isGreaterThan(case2ConnectedAt);
+            assertThat(case2Health.getProbeStatus()).isEqualTo(ServerStatus.UP);
+            assertThat(case2Session.isConnected()).isTrue();
+        } finally {
+            case2Session.disconnect();
+        }
+    }
+
+    @Test
+    public void asyncStartStopTests() {
+        String startUrl = "http://localhost:" + port + "/sftp/async/start";
+        String stopUrl = "http://localhost:" + port + "/sftp/async/stop";
+        String jobsUrl = "http://localhost:" + port + "/sftp/jobs";
+
+        /*
+            Case 1: Verify when an SFTP Server is started asynchronously that a job is accepted and, once waited on, it
+            reports a successful response and the server is running
+         */
+        log.info("Case 1: Verify when an SFTP Server is started asynchronously that a job is accepted and, once waited on, it reports a successful response and the server is running");
+        int case1Port = SocketUtils.findAvailableTcpPort();
+        ResponseEntity<ServerCommandJob> case1Submission = restTemplate.postForEntity(startUrl, new StartSftpServerRequest(case1Port, Collections.singletonList("async")), ServerCommandJob.class);
+        assertThat(case1Submission.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        ServerCommandJob case1Job = restTemplate.getForObject(jobsUrl + "/" + case1Submission.getBody().getJobId() + "?waitMillis=10000", ServerCommandJob.class);
+        assertThat(case1Job.getJobStatus()).isEqualTo(ServerCommandJobStatus.COMPLETED);
+        verifyServerCommandResponse(
+                case1Job.getResponse(),
+                ServerCommandStatus.SUCCESS,
+                ServerStatus.UP,
+                ServerType.SFTP
+        );
+        verifySftpServer(case1Port, Collections.singletonList("async"));
+
+        /*
+            Case 2: Verify when an SFTP Server is stopped asynchronously that the job reports a successful response
+         */
+        log.info("Case 2: Verify when an SFTP Server is stopped asynchronously that the job reports a successful response");
+        ServerCommandJob case2Submission = restTemplate.postForObject(stopUrl + "/" + case1Port, null, ServerCommandJob.class);
+        ServerCommandJob case2Job = restTemplate.getForObject(jobsUrl + "/" + case2Submission.getJobId() + "?waitMillis=10000", ServerCommandJob.class);
+        verifyServerCommandResponse(
+                case2Job.getResponse(),
+                ServerCommandStatus.SUCCESS,
+                ServerStatus.DOWN,
+                ServerType.SFTP
+        );
+
+        /*
+            Case 3: Verify when an unknown job is requested that a not found response is received
+         */
+        log.info("Case 3: Verify when an unknown job is requested that a not found response is received");
+        assertThat(restTemplate.getForEntity(jobsUrl + "/unknown", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void concurrentStartStopTests() throws InterruptedException, ExecutionException {
+        /*
+            Case 1: Verify when many threads start and stop SFTP Servers on the same ports concurrently that every
+            command succeeds
+         */
+        log.info("Case 1: Verify when many threads start and stop SFTP Servers on the same ports concurrently that every command succeeds");
+        List<Integer> ports = Arrays.asList(
+                SocketUtils.findAvailableTcpPort(),
+                SocketUtils.findAvailableTcpPort(),
+                SocketUtils.findAvailableTcpPort()
+        );
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ServerCommandResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int port = ports.get(i % ports.size());
+            boolean start = (i / ports.size()) % 2 == 0;
+            responses.add(executor.submit(() -> start ? sftpHelper.startSftpServer(port) : sftpHelper.stopSftpServer(port)));
+        }
+        for (Future<ServerCommandResponse> response : responses) {
+            assertThat(response.get().getCommandStatus()).isEqualTo(ServerCommandStatus.SUCCESS);
+        }
+        executor.shutdown();
+
+        /*
+            Case 2: Verify after concurrent start and stop commands that each port can still be started, used, and
+            released
+         */
+        log.info("Case 2: Verify after concurrent start and stop commands that each port can still be started, used, and released");
+        for (int port : ports) {
+            verifyServerCommandResponse(
+                    sftpHelper.startSftpServer(port),
+                    ServerCommandStatus.SUCCESS,
+                    ServerStatus.UP,
+                    ServerType.SFTP
+            );
+            verifySftpServer(port);
+            verifyServerCommandResponse(
+                    sftpHelper.stopSftpServer(port),
+                    ServerCommandStatus.SUCCESS,
+                    ServerStatus.DOWN,
+                    ServerType.SFTP
+            );
+            assertThat(serverManager.isPortInUse(port)).isFalse();
+        }
+    }
+
+    @Test
+    public void threadCountTests() {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String threadsUrl = "http://localhost:" + port + "/health/threads";
+
+        /*
+            Case 1: Verify when several SFTP Servers are running and in use that they all share the configured I/O
+            thread pool
+         */
+        log.info("Case 1: Verify when several SFTP Servers are running and in use that they all share the configured I/O thread pool");
+        for (int i = 0; i < 5; i++) {
+            int sftpPort = SocketUtils.findAvailableTcpPort();
+            restTemplate.postForObject(startUrl + "/" + sftpPort, null, ServerCommandResponse.class);
+            verifySftpServer(sftpPort);
+        }
+        ThreadCountResponse threadCount = restTemplate.getForObject(threadsUrl, ThreadCountResponse.class);
+        assertThat(threadCount.getSftpServers()).isEqualTo(5);
+        assertThat(threadCount.getSftpIoThreads()).isBetween(1, sftpConfig.getIoThreads());
+    }
+
+    @Test
+    public void subsystemExecutorTests() throws JSchException, SftpException, InterruptedException, ExecutionException, IOException {
+        String executorUrl = "http://localhost:" + port + "/metrics/sftp/executor";
+
+        /*
+            Case 1: Verify when no subsystem executor is configured that each channel gets its own thread and no shared
+            executor is reported
+         */
+        log.info("Case 1: Verify when no subsystem executor is configured that each channel gets its own thread and no shared executor is reported");
+        assertThat(sftpConfig.getSubsystemExecutor()).isEqualTo(SubsystemExecutorType.PER_CHANNEL);
+        ResponseEntity<SubsystemExecutorMetrics> case1Response = restTemplate.getForEntity(executorUrl, SubsystemExecutorMetrics.class);
+        assertThat(case1Response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        /*
+            Case 2: Verify when a shared executor without a queue has every thread busy that a further channel is
+            refused straight away without closing the session, and that a channel is served again once a thread frees up
+         */
+        log.info("Case 2: Verify when a shared executor without a queue has every thread busy that a further channel is refused straight away without closing the session, and that a channel is served again once a thread frees up");
+        SubsystemExecutor case2Executor = new SubsystemExecutor(SubsystemExecutorType.SHARED, 1, 0);
+        SftpSubsystemFactory case2Factory = new ExtendedSftpSubsystemFactory(sftpChecksums);
+        case2Factory.setExecutorServiceProvider(() -> new NoCloseExecutor(case2Executor));
+        SshServer case2Server = SftpServers.build(new SimpleGeneratorHostKeyProvider(), case2Factory);
+        case2Server.setPort(0);
+        case2Server.start();
+        try {
+            Session case2Session = new JSch().getSession("test", "localhost", case2Server.getPort());
+            case2Session.setConfig("StrictHostKeyChecking", "no");
+            case2Session.connect();
+            ChannelSftp case2Served = (ChannelSftp) case2Session.openChannel("sftp");
+            case2Served.connect();
+            long case2Start = System.nanoTime();
+            Assertions.assertThrows(JSchException.class, () -> case2Session.openChannel("sftp").connect(10000));
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - case2Start)).isLessThan(5000);
+            SubsystemExecutorMetrics case2Metrics = case2Executor.summarize();
+            assertThat(case2Metrics.getQueueCapacity()).isEqualTo(0);
+            assertThat(case2Metrics.getActiveChannels()).isEqualTo(1);
+            assertThat(case2Metrics.getQueuedChannels()).isEqualTo(0);
+            assertThat(case2Metrics.getRejectedChannels()).isEqualTo(1);
+            assertThat(case2Served.stat(".").isDir()).isTrue();
+            case2Served.disconnect();
+            boolean case2Connected = false;
+            for (int i = 0; i < 50 && !case2Connected; i++) {
+                Thread.sleep(100);
+                try {
+                    ChannelSftp case2Retry = (ChannelSftp) case2Session.openChannel("sftp");
+                    case2Retry.connect(10000);
+                    case2Connected = true;
+                    case2Retry.disconnect();
+                } catch (JSchException e) {
+                    log.info("Subsystem thread not released yet -- " + e.getMessage());
+                }
+            }
+            assertThat(case2Connected).isTrue();
+            case2Session.disconnect();
+        } finally {
+            case2Server.stop(true);
+            case2Executor.shutdownNow();
+        }
+
+        /*
+            Case 3: Verify when a shared executor has a queue and every thread is busy that further channels wait in it,
+            and are rejected and counted once it is full
+         */
+        log.info("Case 3: Verify when a shared executor has a queue and every thread is busy that further channels wait in it, and are rejected and counted once it is full");
+        SubsystemExecutor case3Executor = new SubsystemExecutor(SubsystemExecutorType.SHARED, 1, 1);
+        CountDownLatch case3Started = new CountDownLatch(1);
+        CountDownLatch case3Release = new CountDownLatch(1);
+        Future<?> case3Running = case3Executor.submit(() -> {
+            case3Started.countDown();
+            case3Release.await();
+            return null;
+        });
+        assertThat(case3Started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<?> case3Queued = case3Executor.submit(() -> null);
+        Assertions.assertThrows(RejectedExecutionException.class, () -> case3Executor.submit(() -> null));
+        SubsystemExecutorMetrics case3Metrics = case3Executor.summarize();
+        assertThat(case3Metrics.getActiveChannels()).isEqualTo(1);
+        assertThat(case3Metrics.getQueuedChannels()).isEqualTo(1);
+        assertThat(case3Metrics.getRejectedChannels()).isEqualTo(1);
+        case3Release.countDown();
+        case3Running.get();
+        case3Queued.get();
+        assertThat(case3Executor.summarize().getCompletedChannels()).isEqualTo(2);
+        case3Executor.shutdownNow();
+
+        /*
+            Case 4: Verify when virtual threads are requested that they are used where the runtime has them and a
+            shared pool is used otherwise
+         */
+        log.info("Case 4: Verify when virtual threads are requested that they are used where the runtime has them and a shared pool is used otherwise");
+        SubsystemExecutor case4Executor = new SubsystemExecutor(SubsystemExecutorType.VIRTUAL, 4, 4);
+        boolean case4Virtual = Arrays.stream(Executors.class.getMethods()).anyMatch(method -> method.getName().equals("newVirtualThreadPerTaskExecutor"));
+        assertThat(case4Executor.summarize().getType()).isEqualTo(case4Virtual ? SubsystemExecutorType.VIRTUAL : SubsystemExecutorType.SHARED);
+        assertThat(case4Executor.submit(() -> "done").get()).isEqualTo("done");
+        case4Executor.shutdownNow();
+    }
+
+    @Test
+    public void hostKeyTests() throws JSchException {
+        /*
+            Case 1: Verify when multiple SFTP Servers are running that they all present the same host key
+         */
+        log.info("Case 1: Verify when multiple SFTP Servers are running that they all present the same host key");
+        JSch jsch = new JSch();
+        Set<String> fingerPrints = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            int sftpPort = SocketUtils.findAvailableTcpPort();
+            sftpHelper.startSftpServer(sftpPort);
+            Session session = jsch.getSession("test", "localhost", sftpPort);
+            session.setConfig("StrictHostKeyChecking", "no");
+            session.connect();
+            fingerPrints.add(session.getHostKey().getFingerPrint(jsch));
+            session.disconnect();
+        }
+        assertThat(fingerPrints).hasSize(1);
+    }
+
+    @Test
+    public void ephemeralPortTests() throws IOException, InterruptedException, ExecutionException {
+        String startUrl = "http://localhost:" + port + "/sftp/start";
+        String stopUrl = "http://localhost:" + port + "/sftp/stop";
+
+        /*
+            Case 1: Verify when port 0 is sent that an SFTP Server is started on a port picked by the operating system
+            and that port is returned
+         */
+        log.info("Case 1: Verify when port 0 is sent that an SFTP Server is started on a port picked by the operating system and that port is returned");
+        ServerCommandResponse case1Response = restTemplate.postForObject(startUrl + "/0", null, ServerCommandResponse.class);
+        verifyServerCommandResponse(case1Response, ServerCommandStatus.SUCCESS, ServerStatus.UP, ServerType.SFTP);
+        assertThat(case1Response.getPort()).isGreaterThan(0);
+        assertThat(serverManager.isServerOfType(case1Response.getPort(), ServerType.SFTP)).isTrue();
+        verifySftpServer(case1Response.getPort());
+
+        /*
+            Case 2: Verify when many SFTP Servers are started on port 0 concurrently that each is given its own port
+         */
+        log.info("Case 2: Verify when many SFTP Servers are started on port 0 concurrently that each is given its own port");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ServerCommandResponse>> case2Responses = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            case2Responses.add(executor.submit(() -> sftpHelper.startSftpServer(0)));
+        }
+        Set<Integer> case2Ports = new HashSet<>();
+        for (Future<ServerCommandResponse> response : case2Responses) {
+            assertThat(response.get().getCommandStatus()).isEqualTo(ServerCommandStatus.SUCCESS);
+            case2Ports.add(response.get().getPort());
+        }
+        executor.shutdown();
+        assertThat(case2Ports).hasSize(16).doesNotContain(case1Response.getPort());
+
+        /*
+            Case 3: Verify when a port range is sent whose first port is taken outside the application that the SFTP
+            Server is started on a later port of the range
+         */
+        log.info("Case 3: Verify when a port range is sent whose first port is taken outside the application that the SFTP Server is started on a later port of the range");
+        try (ServerSocket case3Socket = new ServerSocket(0)) {
+            int case3Start = case3Socket.getLocalPort();
+            int case3End = Math.min(case3Start + 20, 65535);
+            StartSftpServerRequest case3Request = new StartSftpServerRequest(case3Start, null);
+            case3Request.setPortRangeEnd(case3End);
+            ServerCommandResponse case3Response = restTemplate.postForObject(startUrl, case3Request, ServerCommandResponse.class);
+            verifyServerCommandResponse(case3Response, ServerCommandStatus.SUCCESS, ServerStatus.UP, ServerType.SFTP);
+            assertThat(case3Response.getPort()).isGreaterThan(case3Start).isLessThanOrEqualTo(case3End);
+            assertThat(serverManager.isPortInUse(case3Start)).isFalse();
+            verifySftpServer(case3Response.getPort());
+        }
+
+        /*
+            Case 4: Verify when an invalid port range is sent that a failure response is received
+         */
+        log.info("Case 4: Verify when an invalid port range is sent that a failure response is received");
+        StartSftpServerRequest case4Request = new StartSftpServerRequest(SocketUtils.findAvailableTcpPort(), null);
+        case4Request.setPortRangeEnd(case4Request.getPort() - 1);
+        ResponseEntity<ServerCommandResponse> case4Response = restTemplate.postForEntity(startUrl, case4Request, ServerCommandResponse.class);
+        assertThat(case4Response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyServerCommandResponse(case4Response.getBody(), ServerCommandStatus.FAILED, ServerStatus.DOWN, ServerType.SFTP);
+
+        /*
+            Case 5: Verify an SFTP Server started on port 0 is stopped through the port that was returned
+         */
+        log.info("Case 5: Verify an SFTP Server started on port 0 is stopped through the port that was returned");
+        verifyServerCommandResponse(
+                restTemplate.postForObject(stopUrl + "/" + case1Response.getPort(), null, ServerCommandResponse.class),
+                ServerCommandStatus.SUCCESS,
+                ServerStatus.DOWN,
+                ServerType.SFTP
+        );
+        assertThat(serverManager.isPortInUse(case1Response.getPort())).isFalse();
+    }
+
     private void verifyServerCommandResponse(
             ServerCommandResponse actual,
             ServerCommandStatus expectedCommandStatus,
@@ -386,6 +1920,46 @@ public class SftpTests {
         verifySftpServer(port, Collections.emptyList());
     }
 
+    private List<String> listNames(ChannelSftp channelSftp, String directory) throws SftpException {
+        List<String> names = new ArrayList<String>();
+        for (Object entry : channelSftp.ls(directory)) {
+            names.add(((ChannelSftp.LsEntry) entry).getFilename());
+        }
+        return names;
+    }
+
+    private Map<String, Long> listSizes(SftpClient sftpClient, String path) throws IOException {
+        Map<String, Long> sizes = new HashMap<String, Long>();
+        for (SftpClient.DirEntry entry : sftpClient.readDir(path)) {
+            sizes.put(entry.getFilename(), entry.getAttributes().getSize());
+        }
+        return sizes;
+    }
+
+    private BufferedReader openEventStream(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestProperty("Accept", "text/event-stream");
+        connection.setReadTimeout(10000);
+        assertThat(connection.getResponseCode()).isEqualTo(HttpStatus.OK.value());
+        return new BufferedReader(new InputStreamReader(connection.getInputStream()));
+    }
+
+    /*
+        Reads up to the end of the next event and returns its data, skipping comments
+     */
+    private FileEvent nextEvent(BufferedReader events) throws IOException {
+        String data = null;
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.startsWith("data:")) {
+                data = line.substring("data:".length());
+            } else if (line.isEmpty() && data != null) {
+                return new ObjectMapper().readValue(data, FileEvent.class);
+            }
+        }
+        throw new EOFException("Event stream ended");
+    }
+
     private String readFromInputStream(InputStream inputStream) throws IOException {
         StringBuilder resultStringBuilder = new StringBuilder();
         try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))) {
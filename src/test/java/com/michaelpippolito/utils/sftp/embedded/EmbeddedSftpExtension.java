@@ -0,0 +1,42 @@
+package com.michaelpippolito.utils.sftp.embedded;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+
+import java.io.IOException;
+
+/*
+    Hands an EmbeddedSftpServer to any test or lifecycle method that takes one as a parameter. A test gets a server
+    of its own, started on first use and shared with its @BeforeEach and @AfterEach methods. A @BeforeAll
+    method gets a server for its class instead, which is then also handed to every test of the class. Servers are kept
+    in the JUnit store of the test or class they belong to, so each is stopped and its root deleted as soon as that
+    test or class is done, and parallel tests never see each other's
+
+        @ExtendWith(EmbeddedSftpExtension.class)
+        @Execution(ExecutionMode.CONCURRENT)
+        class UploadTests {
+            @Test
+            void upload(EmbeddedSftpServer sftp) { ... sftp.getPort() ... sftp.resolve("/in/file.txt") ... }
+        }
+ */
+public class EmbeddedSftpExtension implements ParameterResolver {
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(EmbeddedSftpExtension.class);
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == EmbeddedSftpServer.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return extensionContext.getStore(NAMESPACE).getOrComputeIfAbsent(EmbeddedSftpServer.class, key -> {
+            try {
+                return EmbeddedSftpServer.start();
+            } catch (IOException e) {
+                throw new ParameterResolutionException("Failed starting embedded SFTP Server for " + extensionContext.getDisplayName(), e);
+            }
+        }, EmbeddedSftpServer.class);
+    }
+}
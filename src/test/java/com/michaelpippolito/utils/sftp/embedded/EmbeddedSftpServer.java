@@ -0,0 +1,93 @@
+package com.michaelpippolito.utils.sftp.embedded;
+
+import com.michaelpippolito.utils.sftp.ExtendedSftpSubsystemFactory;
+import com.michaelpippolito.utils.sftp.SftpChecksums;
+import com.michaelpippolito.utils.sftp.SftpServers;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.common.io.nio2.Nio2ServiceFactoryFactory;
+import org.apache.sshd.common.util.threads.CloseableExecutorService;
+import org.apache.sshd.common.util.threads.ThreadUtils;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+    An SFTP Server built like the ones SftpHelper starts, but without Spring, bound to an ephemeral port and serving a
+    temporary directory of its own. Nothing is shared between instances except the host key and the I/O threads, so any
+    number of them can run side by side, e.g. one per test under parallel execution
+ */
+@Slf4j
+public class EmbeddedSftpServer implements Closeable, ExtensionContext.Store.CloseableResource {
+    private static final SimpleGeneratorHostKeyProvider HOST_KEYS = new SimpleGeneratorHostKeyProvider();
+    private static final CloseableExecutorService IO_EXECUTOR = ThreadUtils.newFixedThreadPool("embedded-sftp-nio2", Runtime.getRuntime().availableProcessors());
+
+    static {
+        /*
+            EC keys generate in a few milliseconds, and the key is generated once for every server of the JVM
+         */
+        HOST_KEYS.setAlgorithm(KeyUtils.EC_ALGORITHM);
+    }
+
+    private final SshServer server;
+
+    @Getter
+    private final Path root;
+
+    private EmbeddedSftpServer(SshServer server, Path root) {
+        this.server = server;
+        this.root = root;
+    }
+
+    /*
+        The checksums are never fed by upload events, so hashes requested by clients are always computed from the file
+     */
+    public static EmbeddedSftpServer start() throws IOException {
+        Path root = Files.createTempDirectory("embedded-sftp-");
+        SshServer server = SftpServers.build(HOST_KEYS, new ExtendedSftpSubsystemFactory(new SftpChecksums()));
+        server.setIoServiceFactoryFactory(new Nio2ServiceFactoryFactory(() -> ThreadUtils.noClose(IO_EXECUTOR)));
+        server.setFileSystemFactory(new VirtualFileSystemFactory(root));
+        server.setPort(0);
+        try {
+            server.start();
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(root.toFile());
+            throw e;
+        }
+        log.info("Embedded SFTP Server running on port " + server.getPort() + " serving " + root);
+        return new EmbeddedSftpServer(server, root);
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    public String getHost() {
+        return "localhost";
+    }
+
+    /*
+        The local file behind a path as SFTP clients see it, e.g. "/dir/file.txt"
+     */
+    public Path resolve(String path) {
+        return root.resolve(path.startsWith("/") ? path.substring(1) : path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            server.stop(true);
+        } finally {
+            FileUtils.deleteDirectory(root.toFile());
+        }
+        log.info("Embedded SFTP Server stopped on port " + server.getPort());
+    }
+}